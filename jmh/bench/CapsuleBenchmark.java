@@ -0,0 +1,78 @@
+/*
+ * JMH benchmark of the moves of the capsule (Capsule.move, Capsule.rotate, Capsule.updateLandingPoint) on a
+ * half full board (look up Benchmarks.capsule).
+ * Each call moves the capsule there and back, so the board doesn't need to be put back.
+ * 
+ * Libraries:
+ *  org.openjdk.jmh
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import elements.Capsule;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class CapsuleBenchmark {
+	
+	@Param({"8x19", "16x38", "32x64"})
+	String size;
+	
+	Capsule cap;
+	
+	@Setup(Level.Trial)
+	public void board() {
+		
+		this.cap = Fixtures.board(this.size, 0.5, Benchmarks.seed).curCap;
+		
+	}
+	
+	@Benchmark
+	public int moveLeftRight() {
+		
+		this.cap.move(0);
+		this.cap.move(1);
+		
+		return this.cap.x;
+		
+	}
+	
+	@Benchmark
+	public int rotateTwice() {
+		
+		this.cap.rotate();
+		this.cap.rotate();
+		
+		return this.cap.y;
+		
+	}
+	
+	@Benchmark
+	public int updateLandingPoint() {
+		
+		this.cap.updateLandingPoint();
+		
+		return this.cap.landingPoint;
+		
+	}
+
+}
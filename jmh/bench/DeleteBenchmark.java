@@ -0,0 +1,85 @@
+/*
+ * JMH benchmark of the deletion of many elements at once (Game.deleteElements): every element of the bottom
+ * half of a full board (look up Benchmarks.delete).
+ * The deletion empties the board, so it must be put back from its snapshot before every call. One call takes
+ * tens of microseconds, too little to be timed alone around a setup (JMH's Level.Invocation needs a
+ * millisecond or more): each invocation deletes on a batch of copies of the board, all put back before it,
+ * and counts as batch operations.
+ * 
+ * Libraries:
+ *  java.nio
+ *  org.openjdk.jmh
+ */
+
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Game;
+import game.Snapshot;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class DeleteBenchmark {
+	
+	static final int batch = 32; // boards per invocation (more than a millisecond of deletions on 8x19)
+	
+	@Param({"8x19", "16x38", "32x64"})
+	String size;
+	
+	Game[] games;
+	int[][] dead;
+	ByteBuffer snap;
+	
+	@Setup(Level.Trial)
+	public void boards() {
+		
+		this.games = new Game[DeleteBenchmark.batch];
+		for (int i = 0; i < this.games.length; i++)
+			this.games[i] = Fixtures.board(this.size, 0.85, Benchmarks.seed);
+		this.dead = Fixtures.bottomHalf(this.games[0]);
+		this.snap = Fixtures.save(this.games[0]);
+		
+	}
+	
+	@Setup(Level.Invocation)
+	public void restore() {
+		
+		for (Game g : this.games) Snapshot.read(g, this.snap, 0);
+		
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(DeleteBenchmark.batch)
+	public int deleteBottomHalf() {
+		
+		int n = 0;
+		for (Game g : this.games) {
+			g.deleteElements(this.dead);
+			n += g.kills;
+		}
+		
+		return n;
+		
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * JMH benchmark of the detection of the alignments (Grid.detect), on several sizes of grid and several fills
+ * (look up Benchmarks.detect).
+ * 
+ * Libraries:
+ *  org.openjdk.jmh
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Game;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class DetectBenchmark {
+	
+	@Param({"8x19", "16x38", "32x64"})
+	String size;
+	
+	@Param({"0.25", "0.5", "0.85"})
+	double fill;
+	
+	Game g;
+	
+	@Setup(Level.Trial)
+	public void board() {
+		
+		this.g = Fixtures.board(this.size, this.fill, Benchmarks.seed);
+		
+	}
+	
+	@Benchmark
+	public int detect() {
+		
+		return this.g.grid.detect(4).length;
+		
+	}
+
+}
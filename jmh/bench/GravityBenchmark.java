@@ -0,0 +1,143 @@
+/*
+ * JMH benchmark of the gravity (Game.gravity, Game.settle) and of Game.countCanFall, on a board where a third
+ * of the elements were just deleted (look up Benchmarks.gravity).
+ * The gravity moves the cells, so the board must be put back from its snapshot before every call. One call
+ * takes a few microseconds, far too little to be timed alone around a setup (JMH's Level.Invocation needs
+ * a millisecond or more): each invocation runs the gravity on a batch of copies of the board, all put back
+ * before it, and counts as batch operations.
+ * countCanFall doesn't change the board, so it runs on one board that is never put back.
+ * 
+ * Libraries:
+ *  java.nio
+ *  org.openjdk.jmh
+ */
+
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Game;
+import game.Snapshot;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class GravityBenchmark {
+	
+	static final int batch = 64; // boards per invocation (more than a millisecond of gravity on 8x19)
+	
+	@State(Scope.Thread)
+	public static class Boards {
+		/*
+		 * Copies of the board, put back before every invocation.
+		 */
+		
+		@Param({"8x19", "16x38", "32x64"})
+		String size;
+		
+		Game[] games;
+		ByteBuffer snap;
+		
+		@Setup(Level.Trial)
+		public void boards() {
+			
+			this.games = new Game[GravityBenchmark.batch];
+			for (int i = 0; i < this.games.length; i++) this.games[i] = GravityBenchmark.board(this.size);
+			this.snap = Fixtures.save(this.games[0]);
+			
+		}
+		
+		@Setup(Level.Invocation)
+		public void restore() {
+			
+			for (Game g : this.games) Snapshot.read(g, this.snap, 0);
+			
+		}
+		
+	}
+	
+	@State(Scope.Thread)
+	public static class Board {
+		/*
+		 * One board, never changed.
+		 */
+		
+		@Param({"8x19", "16x38", "32x64"})
+		String size;
+		
+		Game g;
+		
+		@Setup(Level.Trial)
+		public void board() {
+			
+			this.g = GravityBenchmark.board(this.size);
+			
+		}
+		
+	}
+	
+	static Game board(String size) {
+		/*
+		 * Returns a board where a third of the elements were just deleted.
+		 * In:
+		 *  size: size of the grid ("8x19")
+		 */
+		
+		Game g = Fixtures.board(size, 0.6, Benchmarks.seed);
+		g.curCap = null;
+		g.deleteElements(Fixtures.randomElements(g, 0.33, Benchmarks.seed));
+		
+		return g;
+		
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(GravityBenchmark.batch)
+	public int gravity(Boards b) {
+		
+		int n = 0;
+		for (Game g : b.games) {
+			g.gravity();
+			n += g.countCanFall();
+		}
+		
+		return n;
+		
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(GravityBenchmark.batch)
+	public int settle(Boards b) {
+		
+		int n = 0;
+		for (Game g : b.games) n += g.settle();
+		
+		return n;
+		
+	}
+	
+	@Benchmark
+	public int countCanFall(Board b) {
+		
+		return b.g.countCanFall();
+		
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * JMH benchmark of the drawing of the canvas into an image (Canvas.paint) on a half full 8x19 board: all of
+ * it, only the changes after a move of the capsule, and the menu (look up Benchmarks.paint).
+ * The canvas loads the images folder from the working folder, so run it from the folder containing it.
+ * 
+ * Libraries:
+ *  java.awt
+ *  org.openjdk.jmh
+ */
+
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.Game;
+import visuals.Canvas;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+	
+	Game g;
+	Canvas can;
+	BufferedImage img;
+	Graphics2D gr;
+	int dir; // direction of the next move of the capsule (it turns back at the walls)
+	
+	@Setup(Level.Trial)
+	public void canvas() {
+		
+		this.g = Fixtures.board(8, 19, 0.5, Benchmarks.seed);
+		this.can = new Canvas(this.g, 28);
+		this.g.setCanvas(this.can);
+		this.img = new BufferedImage(this.can.getWidth(), this.can.getHeight(), BufferedImage.TYPE_INT_RGB);
+		this.gr = this.img.createGraphics();
+		this.dir = 0;
+		
+		this.can.reset();
+		this.can.paint(this.gr);
+		
+	}
+	
+	@Benchmark
+	public int full() {
+		
+		this.can.reset(); // everything is drawn again
+		this.can.paint(this.gr);
+		
+		return this.img.getRGB(this.img.getWidth() / 2, this.img.getHeight() / 2);
+		
+	}
+	
+	@Benchmark
+	public int changes() {
+		
+		// the capsule going left and right
+		if (! this.g.curCap.move(this.dir)) this.dir = 1 - this.dir;
+		this.can.paint(this.gr);
+		
+		return this.img.getRGB(this.img.getWidth() / 2, this.img.getHeight() / 2);
+		
+	}
+	
+	@Benchmark
+	public int menu() {
+		
+		this.g.starting = true;
+		this.can.paint(this.gr);
+		this.g.starting = false;
+		
+		return this.img.getRGB(this.img.getWidth() / 2, this.img.getHeight() / 2);
+		
+	}
+
+}
@@ -22,21 +22,27 @@
  * * game: classes that unify the program
  * * * game: contains most of the variables and objects of the game and uses the main functions
  * * * grid: representation of the current board and a few function to read and use it
- * * * gametask: element used to move to the next state every x milliseconds
+ * * * gameloop: element used to move to the next state every x milliseconds
  * * * generationtask: element used to show the smileys appearing one by one at the level's creation
  * * visuals: interface to play on computer
  * * * canvas: where the elements are drawn
  * * * frame: the window that contains the canvas
+ * * * renderer: thread that draws the canvas once per refresh of the screen
+ * * * sprites: images of the elements, cut out once at the size of a case
+ * * bench: benchmarks of the hot paths (run apart from the game)
+ * * flight: Java Flight Recorder events of the frames, landings, line clears, random events and repaints
  * Libraries:
  * * java.util
  * * java.awt    \
  * * javax.swing  ) interface
  * * java.io     /
+ * * jdk.jfr: flight recordings
  */
 
 import game.EventHandler;
 import game.Game;
 import game.Grid;
+import game.Timings;
 
 import visuals.Frame;
 import visuals.Canvas;
@@ -56,6 +62,16 @@ public class Main {
 		Canvas can = new Canvas(game, frame);
 		game.setCanvas(can);
 		
+		// java -Dsmiletris.passive=true Main: lets Swing repaint the canvas instead of the render thread
+		if (! Boolean.getBoolean("smiletris.passive")) can.startRendering();
+		
+		// java -Dsmiletris.timings=true Main: times each part of the frames and writes them when the program ends
+		if (Boolean.getBoolean("smiletris.timings")) {
+			Timings timings = new Timings();
+			game.timings = timings;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> timings.dump(System.out)));
+		}
+		
 		game.start();
 
 	}
@@ -0,0 +1,199 @@
+/*
+ * Benchmarks of the hot paths of the game, on the boards of Fixtures:
+ * - detection of the alignments (Grid.detect), on several sizes of grid and several fills
+ * - gravity (Game.gravity, Game.settle) and Game.countCanFall
+ * - deletion of many elements at once (Game.deleteElements)
+ * - moves of the capsule (Capsule.move, Capsule.rotate, Capsule.updateLandingPoint)
+ * - drawing of the canvas into an image (Canvas.paint): all of it, only the changes after a move of the
+ *   capsule, and the menu
+ * The results are in nanoseconds per operation.
+ * The same benchmarks are ported to JMH in the jmh folder (mvn -P jmh package, then java -jar
+ * target/benchmarks.jar): the numbers to compare between two versions come from there. This runner is the
+ * quick check that they all still run (-quick), without JMH.
+ * 
+ * Usage from the command line (from the folder containing the images folder):
+ *  java bench.Benchmarks [filter] [-quick]
+ *   filter: only runs the benchmarks whose name contains it
+ *   -quick: less and shorter iterations (to check that everything runs, not to compare)
+ * 
+ * Libraries:
+ *  java.awt
+ *  java.nio
+ */
+
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import elements.Capsule;
+import game.Game;
+import game.Snapshot;
+import visuals.Canvas;
+
+public class Benchmarks {
+	
+	static final long seed = 20231;
+	static final int[][] sizes = {{8, 19}, {16, 38}, {32, 64}};
+	static final double[] fills = {0.25, 0.5, 0.85};
+	
+	final Harness h;
+	final String filter;
+	
+	Benchmarks(Harness h, String filter) {
+		
+		this.h = h;
+		this.filter = filter;
+		
+	}
+	
+	public static void main(String[] args) {
+		
+		String filter = "";
+		boolean quick = false;
+		for (String a : args) {
+			if (a.equals("-quick")) quick = true;
+			else filter = a;
+		}
+		
+		Harness h = quick? new Harness(1, 3, 50) : new Harness(5, 10, 500);
+		Benchmarks b = new Benchmarks(h, filter);
+		
+		b.detect();
+		b.gravity();
+		b.delete();
+		b.capsule();
+		b.paint();
+		
+	}
+	
+	private boolean selected(String name) {
+		
+		return name.contains(this.filter);
+		
+	}
+	
+	void detect() {
+		
+		for (int[] s : Benchmarks.sizes) for (double f : Benchmarks.fills) {
+			String name = "detect " + s[0] + "x" + s[1] + " fill=" + f;
+			if (! this.selected(name)) continue;
+			Game g = Fixtures.board(s[0], s[1], f, Benchmarks.seed);
+			this.h.measure(name, null, () -> g.grid.detect(4).length);
+		}
+		
+	}
+	
+	void gravity() {
+		
+		for (int[] s : Benchmarks.sizes) {
+			String size = " " + s[0] + "x" + s[1];
+			
+			// a board where a third of the elements were just deleted, so many cells are going to fall
+			Game g = Fixtures.board(s[0], s[1], 0.6, Benchmarks.seed);
+			g.curCap = null;
+			g.deleteElements(Fixtures.randomElements(g, 0.33, Benchmarks.seed));
+			ByteBuffer snap = Fixtures.save(g);
+			
+			if (this.selected("gravity" + size))
+				this.h.measure("gravity" + size, () -> Snapshot.read(g, snap, 0), () -> {
+					g.gravity();
+					return g.countCanFall();
+				});
+			if (this.selected("settle" + size))
+				this.h.measure("settle" + size, () -> Snapshot.read(g, snap, 0), () -> g.settle());
+			if (this.selected("countCanFall" + size)) {
+				Snapshot.read(g, snap, 0);
+				this.h.measure("countCanFall" + size, null, () -> g.countCanFall());
+			}
+		}
+		
+	}
+	
+	void delete() {
+		
+		for (int[] s : Benchmarks.sizes) {
+			String name = "deleteElements bottom half " + s[0] + "x" + s[1];
+			if (! this.selected(name)) continue;
+			Game g = Fixtures.board(s[0], s[1], 0.85, Benchmarks.seed);
+			int[][] dead = Fixtures.bottomHalf(g);
+			ByteBuffer snap = Fixtures.save(g);
+			this.h.measure(name + " (" + dead.length + ")", () -> Snapshot.read(g, snap, 0), () -> {
+				g.deleteElements(dead);
+				return g.kills;
+			});
+		}
+		
+	}
+	
+	void capsule() {
+		
+		for (int[] s : Benchmarks.sizes) {
+			String size = " " + s[0] + "x" + s[1];
+			Game g = Fixtures.board(s[0], s[1], 0.5, Benchmarks.seed);
+			Capsule cap = g.curCap;
+			
+			if (this.selected("capsule.move" + size))
+				this.h.measure("capsule.move left+right" + size, null, () -> {
+					cap.move(0);
+					cap.move(1);
+					return cap.x;
+				});
+			if (this.selected("capsule.rotate" + size))
+				this.h.measure("capsule.rotate x2" + size, null, () -> {
+					cap.rotate();
+					cap.rotate();
+					return cap.y;
+				});
+			if (this.selected("capsule.updateLandingPoint" + size))
+				this.h.measure("capsule.updateLandingPoint" + size, null, () -> {
+					cap.updateLandingPoint();
+					return cap.landingPoint;
+				});
+		}
+		
+	}
+	
+	void paint() {
+		
+		Game g = Fixtures.board(8, 19, 0.5, Benchmarks.seed);
+		Canvas can = new Canvas(g, 28);
+		g.setCanvas(can);
+		BufferedImage img = new BufferedImage(can.getWidth(), can.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D gr = img.createGraphics();
+		
+		String name = "canvas.paint 8x19";
+		if (this.selected(name))
+			this.h.measure(name, null, () -> {
+				can.reset(); // everything is drawn again
+				can.paint(gr);
+				return img.getRGB(img.getWidth() / 2, img.getHeight() / 2);
+			});
+		
+		// the capsule going left and right
+		name = "canvas.paint changes 8x19";
+		if (this.selected(name)) {
+			can.reset();
+			can.paint(gr);
+			int[] dir = {0};
+			this.h.measure(name, null, () -> {
+				if (! g.curCap.move(dir[0])) dir[0] = 1 - dir[0];
+				can.paint(gr);
+				return img.getRGB(img.getWidth() / 2, img.getHeight() / 2);
+			});
+		}
+		
+		name = "canvas.paint menu 8x19";
+		if (this.selected(name)) {
+			g.starting = true;
+			this.h.measure(name, null, () -> {
+				can.paint(gr);
+				return img.getRGB(img.getWidth() / 2, img.getHeight() / 2);
+			});
+			g.starting = false;
+		}
+		
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Boards used by the benchmarks. A board only depends on its size, how full it is and its seed, so two runs
+ * of the benchmarks (before and after a change) measure the same thing.
+ * 
+ * A board looks like one in the middle of a game: the smileys of the level at the bottom, fallen capsules
+ * (pairs of fused cells, and some cells left alone after their cell-friend was deleted) over them, columns
+ * of uneven heights, no full alignment, the top rows empty for the capsule.
+ * 
+ * Libraries:
+ *  java.nio
+ *  java.util
+ */
+
+package bench;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import elements.Capsule;
+import elements.Cell;
+import game.EventHandler;
+import game.Game;
+import game.Grid;
+import game.Snapshot;
+
+public class Fixtures {
+	
+	// kinds of the plan of a board
+	static final int empty = 0, smiley = 1, single = 2, left = 3, right = 4, top = 5, bottom = 6;
+	
+	static final int alignLength = 4, colMax = 3;
+	
+	public static Game board(int width, int height, double fill, long seed) {
+		/*
+		 * Returns a game with a board filled up to about fill of its height, and a capsule at the top.
+		 * In:
+		 *  width, height: size of the grid
+		 *  fill: share of the height of the columns filled (from 0 to 1)
+		 *  seed: seed of the board
+		 */
+		
+		SplittableRandom rnd = new SplittableRandom(seed);
+		Game game = new Game(new Grid(width, height), seed);
+		game.setEventHandler(new EventHandler(game));
+		
+		// planning the board
+		
+		int[][] kind = new int[width][height], color = new int[width][height];
+		int[] top = new int[width]; // first row filled of each column
+		for (int x = 0; x < width; x++) {
+			int t = (int) Math.round(fill * height + rnd.nextInt(height / 4 + 1) - height / 8);
+			top[x] = height - Math.max(0, Math.min(height - 3, t));
+		}
+		
+		for (int x = 0; x < width; x++) for (int y = height - 1; y >= top[x]; y--) {
+			if (kind[x][y] != Fixtures.empty) continue;
+			// the smileys are in the bottom half, the cells over them
+			double pSmiley = y > height / 2? 0.6 : 0.1;
+			if (rnd.nextDouble() < pSmiley) {
+				kind[x][y] = Fixtures.smiley;
+			} else if (y - 1 >= top[x] && kind[x][y - 1] == Fixtures.empty && rnd.nextInt(2) == 0) {
+				kind[x][y] = Fixtures.bottom;
+				kind[x][y - 1] = Fixtures.top;
+			} else if (x + 1 < width && y >= top[x + 1] && kind[x + 1][y] == Fixtures.empty && rnd.nextInt(3) > 0) {
+				kind[x][y] = Fixtures.left;
+				kind[x + 1][y] = Fixtures.right;
+			} else
+				kind[x][y] = Fixtures.single;
+		}
+		
+		// colors, drawn again while they would complete an alignment
+		for (int x = 0; x < width; x++) for (int y = height - 1; y >= 0; y--) {
+			if (kind[x][y] == Fixtures.empty) continue;
+			int c, tries = 0;
+			do {
+				c = rnd.nextInt(Fixtures.colMax) + 2;
+				color[x][y] = c;
+				tries += 1;
+			} while (Fixtures.aligned(kind, color, x, y) && tries < 20);
+		}
+		
+		// building it
+		
+		ArrayList<int[]> smileys = new ArrayList<int[]>();
+		for (int x = 0; x < width; x++) for (int y = 0; y < height; y++)
+			if (kind[x][y] == Fixtures.smiley) smileys.add(new int[] {x, y, color[x][y]});
+		game.custom(smileys.toArray(new int[0][]));
+		
+		for (int x = 0; x < width; x++) for (int y = 0; y < height; y++) {
+			Cell c, cf;
+			switch (kind[x][y]) {
+			case Fixtures.single:
+				game.addCell(game.grid.entities.newCell(x, y, false, false, null, color[x][y]));
+				break;
+			case Fixtures.left:
+				c = game.grid.entities.newCell(x, y, true, true, null, color[x][y]);
+				cf = game.grid.entities.newCell(x + 1, y, true, false, c, color[x + 1][y]);
+				game.grid.entities.fuse(c, cf);
+				game.addCell(c); game.addCell(cf);
+				break;
+			case Fixtures.top:
+				c = game.grid.entities.newCell(x, y, false, true, null, color[x][y]);
+				cf = game.grid.entities.newCell(x, y + 1, false, false, c, color[x][y + 1]);
+				game.grid.entities.fuse(c, cf);
+				game.addCell(c); game.addCell(cf);
+				break;
+			}
+		}
+		
+		game.level = 10;
+		game.starting = false;
+		game.generating = false;
+		game.onGoing = true;
+		game.curCap = new Capsule(game.grid, width / 2 - 1, 0, rnd.nextInt(Fixtures.colMax) + 2,
+				rnd.nextInt(Fixtures.colMax) + 2);
+		
+		return game;
+		
+	}
+	
+	private static boolean aligned(int[][] kind, int[][] color, int x, int y) {
+		/*
+		 * Returns if the case (x, y) is in a line of alignLength cases of its color, in any direction.
+		 */
+		
+		int[][] dirs = {{1, 0}, {0, 1}, {1, 1}, {1, - 1}};
+		for (int[] d : dirs) {
+			int n = 1;
+			for (int s = - 1; s <= 1; s += 2) {
+				int i = x + s * d[0], j = y + s * d[1];
+				while (i >= 0 && j >= 0 && i < kind.length && j < kind[0].length
+						&& kind[i][j] != Fixtures.empty && color[i][j] == color[x][y]) {
+					n += 1;
+					i += s * d[0]; j += s * d[1];
+				}
+			}
+			if (n >= Fixtures.alignLength) return true;
+		}
+		
+		return false;
+		
+	}
+	
+	public static Game board(String size, double fill, long seed) {
+		/*
+		 * Same as board, with the size of the grid written width x height ("8x19", as in the parameters of the
+		 * JMH benchmarks).
+		 */
+		
+		String[] wh = size.split("x");
+		
+		return Fixtures.board(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]), fill, seed);
+		
+	}
+	
+	public static int[][] bottomHalf(Game game) {
+		/*
+		 * Returns the coordinates of every element in the bottom half of the board (a large set of cells and
+		 * smileys to kill).
+		 */
+		
+		Grid g = game.grid;
+		ArrayList<int[]> dead = new ArrayList<int[]>();
+		for (int x = 0; x < g.width; x++) for (int y = g.height / 2; y < g.height; y++)
+			if (g.getElement(x, y) != null) dead.add(new int[] {x, y});
+		
+		return dead.toArray(new int[0][]);
+		
+	}
+	
+	public static int[][] randomElements(Game game, double share, long seed) {
+		/*
+		 * Returns the coordinates of a random share of the elements of the board.
+		 */
+		
+		SplittableRandom rnd = new SplittableRandom(seed);
+		Grid g = game.grid;
+		ArrayList<int[]> dead = new ArrayList<int[]>();
+		for (int x = 0; x < g.width; x++) for (int y = 0; y < g.height; y++)
+			if (g.getElement(x, y) != null && rnd.nextDouble() < share) dead.add(new int[] {x, y});
+		
+		return dead.toArray(new int[0][]);
+		
+	}
+	
+	public static ByteBuffer save(Game game) {
+		/*
+		 * Returns a snapshot of the game, to put it back before every operation that changes it.
+		 */
+		
+		ByteBuffer buf = ByteBuffer.allocate(Snapshot.size(game.grid.width, game.grid.height));
+		Snapshot.write(game, buf, 0);
+		
+		return buf;
+		
+	}
+
+}
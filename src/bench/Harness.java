@@ -0,0 +1,95 @@
+/*
+ * Small benchmark harness: runs an operation again and again, first to warm the JIT up, then to measure it,
+ * and gives the mean time of one operation with its standard deviation between the measured iterations.
+ * 
+ * An operation returns a number that is added to a sink, so the JIT can't drop the work as useless.
+ * When an operation changes what it works on (a board where cells are deleted, ...), a setup puts it back
+ * before every call; only the operation is timed then.
+ */
+
+package bench;
+
+public class Harness {
+	
+	public interface Op {
+		public long run();
+	}
+	
+	public interface Setup {
+		public void run();
+	}
+	
+	public int warmups, iterations; // number of iterations
+	public long iterationNanos;      // duration of an iteration
+	
+	long sink;
+	
+	public Harness(int warmups, int iterations, long iterationMillis) {
+		
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1000000L;
+		
+	}
+	
+	public double[] measure(String name, Setup setup, Op op) {
+		/*
+		 * Measures an operation, prints the result and returns {mean, standard deviation}, in nanoseconds per
+		 * operation.
+		 * In:
+		 *  name: name printed
+		 *  setup: run before every operation, not timed (null if there is none)
+		 *  op: operation
+		 */
+		
+		for (int i = 0; i < this.warmups; i++) this.iteration(setup, op);
+		
+		double[] t = new double[this.iterations];
+		for (int i = 0; i < this.iterations; i++) t[i] = this.iteration(setup, op);
+		
+		double mean = 0;
+		for (double v : t) mean += v;
+		mean /= t.length;
+		double dev = 0;
+		for (double v : t) dev += (v - mean) * (v - mean);
+		dev = t.length > 1? Math.sqrt(dev / (t.length - 1)) : 0;
+		
+		System.out.println(String.format("%-44s %14.1f +- %10.1f ns/op", name, mean, dev));
+		
+		return new double[] {mean, dev};
+		
+	}
+	
+	private double iteration(Setup setup, Op op) {
+		/*
+		 * Runs the operation for iterationNanos and returns the mean time of one call.
+		 */
+		
+		long timed = 0, calls = 0;
+		long end = System.nanoTime() + this.iterationNanos;
+		
+		if (setup == null) {
+			// calls are timed by batches, so reading the clock doesn't count
+			int batch = 1;
+			while (System.nanoTime() < end) {
+				long t = System.nanoTime();
+				for (int i = 0; i < batch; i++) this.sink += op.run();
+				timed += System.nanoTime() - t;
+				calls += batch;
+				if (batch < 1 << 16) batch *= 2;
+			}
+		} else {
+			while (System.nanoTime() < end) {
+				setup.run();
+				long t = System.nanoTime();
+				this.sink += op.run();
+				timed += System.nanoTime() - t;
+				calls += 1;
+			}
+		}
+		
+		return (double) timed / calls;
+		
+	}
+
+}
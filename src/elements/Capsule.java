@@ -43,8 +43,8 @@ public class Capsule {
 		
 		// procedures
 		
-		this.grid.g[this.x][this.y] = this.c0;
-		this.grid.g[this.x + 1][this.y] = this.c1;
+		this.grid.set(this.x, this.y, this.c0);
+		this.grid.set(this.x + 1, this.y, this.c1);
 		/*
 		 * default:
 		 * ____ ____ ____ ____
@@ -68,13 +68,13 @@ public class Capsule {
 		
 		if (this.hori) {
 			// free empty cases
-			this.grid.g[this.x][this.y] = 0;     // former c0
-			this.grid.g[this.x + 1][this.y] = 0; // former c1
+			this.grid.set(this.x, this.y, 0);     // former c0
+			this.grid.set(this.x + 1, this.y, 0); // former c1
 			// update coordinates
 			this.y += 1;
 			// fill in new cases
-			this.grid.g[this.x][this.y] = this.c0;
-			this.grid.g[this.x + 1][this.y] = this.c1;
+			this.grid.set(this.x, this.y, this.c0);
+			this.grid.set(this.x + 1, this.y, this.c1);
 			return true;
 		}
 		
@@ -82,15 +82,15 @@ public class Capsule {
 		if (this.y == - 1) {
 			// update coordinates
 			this.y += 1;
-			this.grid.g[this.x][this.y] = this.c0;
-			this.grid.g[this.x][this.y + 1] = this.c1;
+			this.grid.set(this.x, this.y, this.c0);
+			this.grid.set(this.x, this.y + 1, this.c1);
 			return true;
 		}
 		
 		// simultaneous
-		this.grid.g[this.x][this.y] = 0;           // free the top
-		this.grid.g[this.x][this.y + 1] = this.c0; // former c1 replaced with c0
-		this.grid.g[this.x][this.y + 2] = this.c1; // fill in with c1
+		this.grid.set(this.x, this.y, 0);           // free the top
+		this.grid.set(this.x, this.y + 1, this.c0); // former c1 replaced with c0
+		this.grid.set(this.x, this.y + 2, this.c1); // fill in with c1
 		// update coordinates
 		this.y += 1;
 		
@@ -112,11 +112,11 @@ public class Capsule {
 		
 		return (
 				this.hori &&
-				this.grid.g[this.x][yOri + 1] == 0 &&
-				this.grid.g[this.x + 1][yOri + 1] == 0
+				this.grid.get(this.x, yOri + 1) == 0 &&
+				this.grid.get(this.x + 1, yOri + 1) == 0
 				) || (
 				(! this.hori) &&
-				this.grid.g[this.x][yOri + 2] == 0);
+				this.grid.get(this.x, yOri + 2) == 0);
 		// also works for y = - 1
 		
 	}
@@ -142,7 +142,7 @@ public class Capsule {
 		// rotating at the top
 		if (this.y == 0 && ! this.hori) {
 			
-			this.grid.g[this.x + 1][this.y] = 0; // free new empty case
+			this.grid.set(this.x + 1, this.y, 0); // free new empty case
 			this.y -= 1;                         // update coordinates
 			this.swapColors(false);              // update c0 and c1
 			this.updateLandingPoint();
@@ -153,11 +153,11 @@ public class Capsule {
 			// right bar
 			if (this.x != this.grid.width - 1) {
 				
-				if (this.grid.g[this.x + 1][this.y + 1] == 0) {
+				if (this.grid.get(this.x + 1, this.y + 1) == 0) {
 					this.y += 1; // update coordinates
 					// update grid
-					this.grid.g[this.x + 1][this.y] = this.c1;
-					this.grid.g[this.x][this.y] = this.c0;
+					this.grid.set(this.x + 1, this.y, this.c1);
+					this.grid.set(this.x, this.y, this.c0);
 					this.updateLandingPoint();
 					return true;
 					
@@ -169,8 +169,8 @@ public class Capsule {
 			// update coordinates
 			this.x -= 1; this.y += 1;
 			// update grid
-			this.grid.g[this.x][this.y] = this.c0;
-			this.grid.g[this.x + 1][this.y] = this.c1;
+			this.grid.set(this.x, this.y, this.c0);
+			this.grid.set(this.x + 1, this.y, this.c1);
 			this.updateLandingPoint();
 			return true;
 			
@@ -180,21 +180,21 @@ public class Capsule {
 		if (! this.hori) {
 			
 			// left bar
-			if (this.grid.g[this.x][this.y - 1] == 0) {
-				this.grid.g[this.x + 1][this.y] = 0;   // free new empty case
+			if (this.grid.get(this.x, this.y - 1) == 0) {
+				this.grid.set(this.x + 1, this.y, 0);   // free new empty case
 				this.y -= 1;                           // update coordinates
-				this.grid.g[this.x][this.y] = this.c1; // update grid
+				this.grid.set(this.x, this.y, this.c1); // update grid
 				this.swapColors(false);
 				this.updateLandingPoint();
 				return true;
 			}
 			
 			// right bar
-			this.grid.g[this.x][this.y] = 0; // free new empty case
+			this.grid.set(this.x, this.y, 0); // free new empty case
 			this.x += 1; this.y -= 1;        // update coordinates
 			// update grid
-			this.grid.g[this.x][this.y + 1] = this.c0;
-			this.grid.g[this.x][this.y] = this.c1;
+			this.grid.set(this.x, this.y + 1, this.c0);
+			this.grid.set(this.x, this.y, this.c1);
 			this.swapColors(false);
 			this.updateLandingPoint();
 			return true;
@@ -204,20 +204,20 @@ public class Capsule {
 		// change from vertical to horizontal
 		
 		// right side
-		if (this.x != this.grid.width - 1) if (this.grid.g[this.x + 1][this.y + 1] == 0) {
-			this.grid.g[this.x][this.y] = 0; // free new empty case
+		if (this.x != this.grid.width - 1) if (this.grid.get(this.x + 1, this.y + 1) == 0) {
+			this.grid.set(this.x, this.y, 0); // free new empty case
 			this.y += 1;                     // update coordinates
 			// update grid
-			this.grid.g[this.x][this.y] = this.c0;
-			this.grid.g[this.x + 1][this.y] = this.c1;
+			this.grid.set(this.x, this.y, this.c0);
+			this.grid.set(this.x + 1, this.y, this.c1);
 			this.updateLandingPoint();
 			return true;
 		}
 		
 		// left side
-		this.grid.g[this.x][this.y] = 0;       // free new empty case
+		this.grid.set(this.x, this.y, 0);       // free new empty case
 		this.x -= 1; this.y += 1;              // update coordinates
-		this.grid.g[this.x][this.y] = this.c0; // update grid
+		this.grid.set(this.x, this.y, this.c0); // update grid
 		this.updateLandingPoint();
 		return true;
 		
@@ -245,25 +245,25 @@ public class Capsule {
 		/*
 		if (this.y == - 1) {// => must be vertical
 			if (this.x == 0)
-				return this.grid.g[this.x + 1][this.y + 1] == 0;
+				return this.grid.get(this.x + 1, this.y + 1) == 0;
 			else if (this.x == this.grid.width - 1)
-				return this.grid.g[this.x - 1][this.y + 1] == 0;
+				return this.grid.get(this.x - 1, this.y + 1) == 0;
 			else
-				return (this.grid.g[this.x + 1][this.y + 1] == 0 ||
-						this.grid.g[this.x - 1][this.y + 1] == 0);
+				return (this.grid.get(this.x + 1, this.y + 1) == 0 ||
+						this.grid.get(this.x - 1, this.y + 1) == 0);
 		}
 		*/
 		
 		if (this.hori)
-			return (this.grid.g[this.x][this.y - 1] == 0 ||
-					this.grid.g[this.x + 1][this.y - 1] == 0);
+			return (this.grid.get(this.x, this.y - 1) == 0 ||
+					this.grid.get(this.x + 1, this.y - 1) == 0);
 		else if (this.x == 0)
-			return (this.grid.g[this.x + 1][this.y + 1] == 0);
+			return (this.grid.get(this.x + 1, this.y + 1) == 0);
 		else if (this.x == this.grid.width - 1)
-			return (this.grid.g[this.x - 1][this.y + 1] == 0);
+			return (this.grid.get(this.x - 1, this.y + 1) == 0);
 		else
-			return (this.grid.g[this.x - 1][this.y + 1] == 0 ||
-					this.grid.g[this.x + 1][this.y + 1] == 0);
+			return (this.grid.get(this.x - 1, this.y + 1) == 0 ||
+					this.grid.get(this.x + 1, this.y + 1) == 0);
 		// those tests work in case y = - 1 (always vertical)
 		
 		/*
@@ -271,12 +271,12 @@ public class Capsule {
 		return
 				// horizontal
 				(this.hori && (
-						this.grid.g[this.x][this.y - 1] == 0 || // top-left is free
-						this.grid.g[this.x + 1][this.y - 1] == 0)) || // top-right is free
+						this.grid.get(this.x, this.y - 1) == 0 || // top-left is free
+						this.grid.get(this.x + 1, this.y - 1) == 0)) || // top-right is free
 				// vertical
 				((! this.hori) && (
-						this.grid.g[this.x - 1][this.y + 1] == 0 || // bottom-left is free
-						this.grid.g[this.x + 1][this.y + 1] == 0)); // bottom-right is free
+						this.grid.get(this.x - 1, this.y + 1) == 0 || // bottom-left is free
+						this.grid.get(this.x + 1, this.y + 1) == 0)); // bottom-right is free
 		*/
 		
 	}
@@ -302,37 +302,37 @@ public class Capsule {
 		// y = - 1 (always vertical)
 		if (this.y == - 1) {
 			if (dir == 0) {
-				this.grid.g[this.x + 1][this.y + 1] = 0;
-				this.grid.g[this.x][this.y + 1] = this.c1;
+				this.grid.set(this.x + 1, this.y + 1, 0);
+				this.grid.set(this.x, this.y + 1, this.c1);
 				return true;
 			} else {
-				this.grid.g[this.x - 1][this.y + 1] = 0;
-				this.grid.g[this.x][this.y + 1] = this.c1;
+				this.grid.set(this.x - 1, this.y + 1, 0);
+				this.grid.set(this.x, this.y + 1, this.c1);
 				return true;
 			}
 		}
 		
 		if (this.hori)
 			if (dir == 0) {
-				this.grid.g[this.x][this.y] = this.c0;
-				this.grid.g[this.x + 1][this.y] = this.c1;
-				this.grid.g[this.x + 2][this.y] = 0;
+				this.grid.set(this.x, this.y, this.c0);
+				this.grid.set(this.x + 1, this.y, this.c1);
+				this.grid.set(this.x + 2, this.y, 0);
 			} else {
-				this.grid.g[this.x - 1][this.y] = 0;
-				this.grid.g[this.x][this.y] = this.c0;
-				this.grid.g[this.x + 1][this.y] = this.c1;
+				this.grid.set(this.x - 1, this.y, 0);
+				this.grid.set(this.x, this.y, this.c0);
+				this.grid.set(this.x + 1, this.y, this.c1);
 			}
 		else {
 			if (dir == 0) {
-				this.grid.g[this.x][this.y] = this.c0;
-				this.grid.g[this.x][this.y + 1] = this.c1;
-				this.grid.g[this.x + 1][this.y] = 0;
-				this.grid.g[this.x + 1][this.y + 1] = 0;
+				this.grid.set(this.x, this.y, this.c0);
+				this.grid.set(this.x, this.y + 1, this.c1);
+				this.grid.set(this.x + 1, this.y, 0);
+				this.grid.set(this.x + 1, this.y + 1, 0);
 			} else {
-				this.grid.g[this.x - 1][this.y] = 0;
-				this.grid.g[this.x - 1][this.y + 1] = 0;
-				this.grid.g[this.x][this.y] = this.c0;
-				this.grid.g[this.x][this.y + 1] = this.c1;
+				this.grid.set(this.x - 1, this.y, 0);
+				this.grid.set(this.x - 1, this.y + 1, 0);
+				this.grid.set(this.x, this.y, this.c0);
+				this.grid.set(this.x, this.y + 1, this.c1);
 			}
 		}
 		
@@ -356,31 +356,33 @@ public class Capsule {
 		if (dir == 1 && (this.x == this.grid.width - 1 || (this.x == this.grid.width - 2 && this.hori)))
 			return false;
 		if (this.y == - 1)
-			return ((dir == 0 && this.grid.g[this.x - 1][this.y + 1] == 0) ||
-					(dir == 1 && this.grid.g[this.x + 1][this.y + 1] == 0));
+			return ((dir == 0 && this.grid.get(this.x - 1, this.y + 1) == 0) ||
+					(dir == 1 && this.grid.get(this.x + 1, this.y + 1) == 0));
 		
 		if (this.hori) {
 			if (dir == 0)
-				return (this.grid.g[this.x - 1][this.y] == 0);
-			return (this.grid.g[this.x + 2][this.y] == 0);
+				return (this.grid.get(this.x - 1, this.y) == 0);
+			return (this.grid.get(this.x + 2, this.y) == 0);
 		}
 		
 		if (dir == 0)
-			return (this.grid.g[this.x - 1][this.y] == 0 && this.grid.g[this.x - 1][this.y + 1] == 0);
-		return (this.grid.g[this.x + 1][this.y] == 0 && this.grid.g[this.x + 1][this.y + 1] == 0);
+			return (this.grid.get(this.x - 1, this.y) == 0 && this.grid.get(this.x - 1, this.y + 1) == 0);
+		return (this.grid.get(this.x + 1, this.y) == 0 && this.grid.get(this.x + 1, this.y + 1) == 0);
 		
 	}
 	
-	private int getLandingPoint() {
+	public int getLandingPoint() {
 		/*
 		 * Returns where the capsule is going to fall if nothing is applied to it (only the y coordinate because the x coordinate won't change).
+		 * The capsule lands right on top of the first case that is filled under it, given by the grid:
+		 * - if it is horizontal, under each of its two cells
+		 * - if it is vertical, under its bottom cell
 		 */
 		
-		int yC = this.y;
-		while (yC < this.grid.height && this.canFall(yC))
-			yC += 1;
+		if (this.hori)
+			return Math.min(this.grid.firstBelow(this.x, this.y), this.grid.firstBelow(this.x + 1, this.y)) - 1;
 		
-		return yC;
+		return this.grid.firstBelow(this.x, this.y + 1) - 2;
 		
 	}
 	
@@ -405,14 +407,14 @@ public class Capsule {
 		if (this.y == - 1)
 			res[0] = null;
 		else
-			res[0] = new Cell(this.grid, this.x, this.y, this.hori, true, null, this.c0);
+			res[0] = this.grid.entities.newCell(this.x, this.y, this.hori, true, null, this.c0);
 		
 		// get the coordinates of the second cell
 		int xp = this.x; int yp = this.y;
 		if (this.hori) xp += 1;
 		else           yp += 1;
 		// create it
-		res[1] = new Cell(this.grid, xp, yp, this.hori, false, res[0], this.c1);
+		res[1] = this.grid.entities.newCell(xp, yp, this.hori, false, res[0], this.c1);
 		
 		// update the cell-friend of the first cell
 		if (res[0] != null)
@@ -435,14 +437,14 @@ public class Capsule {
 		if (this.y == - 1)
 			res[0] = null;
 		else
-			res[0] = new Smiley(this.grid, this.x, this.y, this.c0);
+			res[0] = this.grid.entities.newSmiley(this.x, this.y, this.c0);
 		
 		// get the coordinates of the second smiley
 		int xp = this.x; int yp = this.y;
 		if (this.hori) xp += 1;
 		else           yp += 1;
 		// create it
-		res[1] = new Smiley(this.grid, xp, yp, this.c1);
+		res[1] = this.grid.entities.newSmiley(xp, yp, this.c1);
 		
 		return res;
 		
@@ -460,11 +462,11 @@ public class Capsule {
 		this.c1 = ct;
 		
 		if (doGrid) {
-			this.grid.g[x][y] = this.c0;
+			this.grid.set(x, y, this.c0);
 			if (this.hori)
-				this.grid.g[x + 1][y] = this.c1;
+				this.grid.set(x + 1, y, this.c1);
 			else
-				this.grid.g[x][y + 1] = this.c1;
+				this.grid.set(x, y + 1, this.c1);
 		}
 		
 	}
@@ -1,6 +1,10 @@
 /*
  * Cell placed on the board by the player, made from a capsule.
  * A new cell is joined to the other one that composed the capsule. They are mutually "cell-friends".
+ * 
+ * A cell object doesn't hold its attributes: it is a view on an element of the grid's store (look up
+ * Entities), which keeps them in arrays. The views are made by the store; new cells are created with
+ * Entities.newCell.
  */
 
 package elements;
@@ -10,35 +14,93 @@ import game.Grid;
 public class Cell {
 	
 	final Grid grid;
-	public int x, y;
+	final Entities es;
+	public final int id; // index of the element in the store's arrays
 	
-	public boolean hori; // is horizontal?
-	public boolean tl;   // top-left; if the object is fused, is it the "most top-left" cell?
+	Cell(Entities es, int id) {
+		
+		this.grid = es.grid;
+		this.es = es;
+		this.id = id;
+		
+	}
+	
+	byte kind() {
+		/*
+		 * Returns the kind of element the view is made for (look up Entities).
+		 */
+		
+		return Entities.CELL;
+		
+	}
 	
-	public int color; // look up the grid file for each number's color
+	// attributes
 	
-	public boolean fused; // is fused with another cell?
-	Cell cf; // cell-friend
-
-	public Cell(Grid grid, int x, int y, boolean hori, boolean tl, Cell cf, int color) {
+	public int getX() {
+		
+		return this.es.x[this.id];
+		
+	}
+	
+	public int getY() {
+		
+		return this.es.y[this.id];
+		
+	}
+	
+	public int getColor() {
+		/*
+		 * Returns the color (look up the grid file for each number's color).
+		 */
+		
+		return this.es.color[this.id];
 		
-		// variables
+	}
+	
+	public boolean isHori() {
+		/*
+		 * Returns if the cell is horizontal.
+		 */
 		
-		this.grid = grid;
-		this.x = x;
-		this.y = y;
+		return this.es.hori[this.id];
 		
-		this.hori = hori;
-		this.tl = tl;
+	}
+	
+	public boolean isTl() {
+		/*
+		 * Returns if the cell is the "most top-left" cell of the two fused ones.
+		 */
 		
-		this.color = color;
+		return this.es.tl[this.id];
+		
+	}
+	
+	public boolean isFused() {
+		/*
+		 * Returns if the cell is fused with another cell.
+		 */
+		
+		return this.es.friend[this.id] != - 1;
+		
+	}
+	
+	public int getSlot() {
+		/*
+		 * Returns the index of the element in the array that holds it (game.cells, game.smileys or eh.stones).
+		 */
 		
-		this.fused = cf != null;
-		this.cf = cf;
+		return this.es.slot[this.id];
 		
-		// procedures
+	}
+	
+	public void setSlot(int slot) {
+		/*
+		 * Sets the index of the element in the array that holds it. Done by the object that stores it.
+		 * In:
+		 *  slot: index
+		 */
 		
-		this.grid.g[x][y] = this.color;
+		this.es.slot[this.id] = slot;
 		
 	}
 	
@@ -50,16 +112,25 @@ public class Cell {
 		 *  cf: new cell-friend
 		 */
 		
-		this.fused = cf != null;
-		this.cf = cf;
+		this.es.friend[this.id] = cf == null? - 1 : cf.id;
 		
-		if (! this.fused) {
-			this.hori = false;
-			this.tl = false;
+		if (cf == null) {
+			this.es.hori[this.id] = false;
+			this.es.tl[this.id] = false;
+			this.grid.markDirty(this.getX(), this.getY()); // drawn as a lone cell now
 		}
 		
 	}
 	
+	public Cell getCf() {
+		/*
+		 * Returns the cell-friend (null if the cell isn't fused).
+		 */
+		
+		return this.es.view(this.es.friend[this.id]);
+		
+	}
+	
 	public boolean fall(boolean force) {
 		/*
 		 * Makes the cell fall. Returns false if it can't fall.
@@ -68,6 +139,9 @@ public class Cell {
 		if ((! force) && (! this.canFall()))
 			return false;
 		
+		int x = this.getX(), y = this.getY();
+		boolean fused = this.isFused(), hori = this.isHori();
+		
 		/*
 		 * If the cell is fused with another one and is vertical, it is possible that the cell on top will
 		 * fall before the one on the bottom and in that case, replace the case on the grid first; to avoid
@@ -79,15 +153,32 @@ public class Cell {
 		 *  0 0 0     0 0 0     0 2 0 | 0 0 0     0 0 0     0 2 0
 		 *  0 0 0     0 0 0     0 0 0 | 0 0 0     0 0 0     0 0 0
 		 */
-		if ((! this.fused) || (this.fused && this.hori) || (this.fused && (! this.hori) && this.tl)) 
-			this.grid.g[this.x][this.y] = 0;
-		this.y += 1;
-		this.grid.g[this.x][this.y] = this.color;
+		if ((! fused) || (fused && hori) || (fused && (! hori) && this.isTl())) 
+			this.grid.set(x, y, 0);
+		this.leaveCase();
+		this.enterCase(x, y + 1);
 		
 		return true;
 		
 	}
 	
+	public void drop(int n) {
+		/*
+		 * Moves the cell n cases down at once, without checking if it can.
+		 * The case it leaves is emptied unless another element has already moved in, so a vertical pair can
+		 * be dropped bottom cell first.
+		 * In:
+		 *  n: number of cases
+		 */
+		
+		int x = this.getX(), y = this.getY();
+		
+		if (this.grid.getElement(x, y) == this) this.grid.set(x, y, 0);
+		this.leaveCase();
+		this.enterCase(x, y + n);
+		
+	}
+	
 	public boolean canFall() {
 		/*
 		 * Returns if the cell can fall, taking in account the cell-friend if the cell is fused.
@@ -99,11 +190,11 @@ public class Cell {
 		 * Checking if a cell can fall "individually" is done with the canFallIndiv function.
 		 */
 		
-		if (this.fused) {
-			if (this.hori)
-				return this.canFallIndiv() && this.cf.canFallIndiv();
-			else if (this.tl)
-				return this.cf.canFallIndiv();
+		if (this.isFused()) {
+			if (this.isHori())
+				return this.canFallIndiv() && this.getCf().canFallIndiv();
+			else if (this.isTl())
+				return this.getCf().canFallIndiv();
 			else
 				return this.canFallIndiv();
 		} else
@@ -117,10 +208,12 @@ public class Cell {
 		 * Done by checking if the case under is set to 0.
 		 */
 		
+		int y = this.getY();
+		
 		// avoid being out of range
-		if (this.y == this.grid.height - 1) return false;
+		if (y == this.grid.height - 1) return false;
 		
-		return this.grid.g[this.x][this.y + 1] == 0;
+		return this.grid.get(this.getX(), y + 1) == 0;
 		
 	}
 	
@@ -130,13 +223,16 @@ public class Cell {
 		 * Returns false if there could be errors with the coordinates.
 		 * In:
 		 *  changeOri: should set the initial case to 0? (in case it has already been changed)
+		 *   even if it is true, the case isn't emptied if another element has already moved in
 		 */
 		
-		if (this.y == 0) return false;
+		int x = this.getX(), y = this.getY();
+		
+		if (y == 0) return false;
 		
-		if (changeOri) this.grid.g[this.x][this.y] = 0;
-		this.y -= 1;
-		this.grid.g[this.x][this.y] = this.color;
+		if (changeOri && this.grid.getElement(x, y) == this) this.grid.set(x, y, 0);
+		this.leaveCase();
+		this.enterCase(x, y - 1);
 		
 		return true;
 		
@@ -146,20 +242,53 @@ public class Cell {
 		/*
 		 * Kill a cell.
 		 * Also updates the cell-friend is it exists.
+		 * The element is removed from the store, so this view mustn't be used after.
 		 */
 		
-		this.grid.g[this.x][this.y] = 0;
-		if (this.fused) {
-			this.fused = false;
-			this.cf.updateCf(null);
+		this.grid.set(this.getX(), this.getY(), 0);
+		this.leaveCase();
+		if (this.isFused()) {
+			this.getCf().updateCf(null);
+			this.es.friend[this.id] = - 1;
 		}
+		this.es.remove(this.id);
+		
+	}
+	
+	private void leaveCase() {
+		/*
+		 * Removes the cell from the grid's index of elements, unless another element has already taken its case.
+		 * The case is remembered as changed for the next detection.
+		 */
+		
+		int x = this.getX(), y = this.getY();
+		
+		if (this.grid.getElement(x, y) == this)
+			this.grid.setElement(x, y, null);
+		this.grid.touch(x, y);
+		
+	}
+	
+	private void enterCase(int x, int y) {
+		/*
+		 * Moves the cell to the case (x, y) and puts it there on the grid.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		this.es.x[this.id] = x;
+		this.es.y[this.id] = y;
+		this.grid.set(x, y, this.getColor());
+		this.grid.setElement(x, y, this);
+		this.grid.touch(x, y);
 		
 	}
 	
 	public void changeColor(int newCol) {
 		
-		this.color = newCol;
-		this.grid.g[this.x][this.y] = this.color;
+		this.es.color[this.id] = (byte) newCol;
+		this.grid.set(this.getX(), this.getY(), newCol);
+		this.grid.touch(this.getX(), this.getY());
 		
 	}
 
@@ -0,0 +1,243 @@
+/*
+ * Store of every cell, smiley and stone of a grid.
+ * The elements aren't objects with their own fields: each of them is an index (its id) in arrays of numbers
+ * that all have the same length, one array per attribute:
+ *  x[id], y[id]: coordinates
+ *  color[id]:    look up the grid file for each number's color
+ *  kind[id]:     cell, smiley or stone (look up the constants below)
+ *  hori[id]:     is horizontal?
+ *  tl[id]:       top-left; if the element is fused, is it the "most top-left" cell?
+ *  friend[id]:   id of the cell-friend (- 1 if the element isn't fused)
+ *  slot[id]:     index of the element in the array that holds it (game.cells, game.smileys or eh.stones)
+ * 
+ * The Cell, Smiley and Stone objects the rest of the program uses are only views on an id (look up view).
+ * There is one view per id, made the first time the id is used and given again every time the id is reused
+ * by an element of the same kind, so creating and killing elements doesn't allocate anything once the game
+ * has been running for a while.
+ * The ids of killed elements are kept in a stack and given again first.
+ */
+
+package elements;
+
+import java.util.Arrays;
+
+import game.Grid;
+
+public class Entities {
+	
+	// kinds
+	public static final byte CELL = 0, SMILEY = 1, STONE = 2;
+	
+	final Grid grid;
+	
+	public int[] x, y;
+	public byte[] color, kind;
+	public boolean[] hori, tl;
+	public int[] friend, slot;
+	boolean[] alive;
+	
+	Cell[] views; // views[id]: view given for the id (null if the id was never used)
+	
+	int[] free; // stack of the ids to give again, the next one at the end
+	int nbFree;
+	int next;   // lowest id that was never given
+	
+	public Entities(Grid grid) {
+		
+		this.grid = grid;
+		
+		this.allocate(grid.width * grid.height);
+		this.reset();
+		
+	}
+	
+	public Cell newCell(int x, int y, boolean hori, boolean tl, Cell cf, int color) {
+		/*
+		 * Creates a cell placed on the grid and returns its view.
+		 * In:
+		 *  x, y: coordinates
+		 *  hori: is horizontal?
+		 *  tl: is top-left?
+		 *  cf: cell-friend (null if the cell isn't fused)
+		 *  color: color
+		 */
+		
+		return this.place(this.create(Entities.CELL, x, y, hori, tl, cf == null? - 1 : cf.id, color));
+		
+	}
+	
+	public Smiley newSmiley(int x, int y, int color) {
+		/*
+		 * Creates a smiley placed on the grid and returns its view. A smiley is a cell that isn't fused.
+		 * In:
+		 *  x, y: coordinates
+		 *  color: color
+		 */
+		
+		return (Smiley) this.place(this.create(Entities.SMILEY, x, y, false, false, - 1, color));
+		
+	}
+	
+	public Stone newStone(int x, int y) {
+		/*
+		 * Creates a stone placed on the grid and returns its view. A stone is a cell that isn't fused with
+		 * color 1.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		return (Stone) this.place(this.create(Entities.STONE, x, y, false, false, - 1, 1));
+		
+	}
+	
+	private int create(byte kind, int x, int y, boolean hori, boolean tl, int friend, int color) {
+		/*
+		 * Gives an id to a new element and sets its attributes. Returns the id.
+		 * In:
+		 *  kind: cell, smiley or stone
+		 *  (others): attributes (look up the top of the file)
+		 */
+		
+		int id;
+		if (this.nbFree > 0) {
+			this.nbFree -= 1;
+			id = this.free[this.nbFree];
+		} else {
+			if (this.next == this.x.length) this.allocate(2 * this.x.length);
+			id = this.next;
+			this.next += 1;
+		}
+		
+		this.x[id] = x; this.y[id] = y;
+		this.color[id] = (byte) color;
+		this.kind[id] = kind;
+		this.hori[id] = hori; this.tl[id] = tl;
+		this.friend[id] = friend;
+		this.slot[id] = - 1; // set by the object that stores the element
+		this.alive[id] = true;
+		
+		return id;
+		
+	}
+	
+	private Cell place(int id) {
+		/*
+		 * Puts a new element on the grid and returns its view.
+		 * In:
+		 *  id: id of the element
+		 */
+		
+		Cell v = this.view(id);
+		this.grid.set(this.x[id], this.y[id], this.color[id]);
+		this.grid.setElement(this.x[id], this.y[id], v);
+		this.grid.touch(this.x[id], this.y[id]);
+		
+		return v;
+		
+	}
+	
+	public Cell view(int id) {
+		/*
+		 * Returns the view of an element (null if id is - 1).
+		 * A view is only made again if the id was last used by an element of another kind.
+		 * In:
+		 *  id: id of the element
+		 */
+		
+		if (id == - 1) return null;
+		
+		Cell v = this.views[id];
+		if (v == null || v.kind() != this.kind[id]) {
+			switch (this.kind[id]) {
+			case Entities.SMILEY:
+				v = new Smiley(this, id);
+				break;
+			case Entities.STONE:
+				v = new Stone(this, id);
+				break;
+			default:
+				v = new Cell(this, id);
+			}
+			this.views[id] = v;
+		}
+		
+		return v;
+		
+	}
+	
+	public void fuse(Cell a, Cell b) {
+		/*
+		 * Makes two cells each other's cell-friend (used when a game is loaded, look up game.Snapshot).
+		 * In:
+		 *  a, b: cells
+		 */
+		
+		this.friend[a.id] = b.id;
+		this.friend[b.id] = a.id;
+		
+	}
+	
+	void remove(int id) {
+		/*
+		 * Gives the id of a killed element back, so a new element can use it.
+		 * In:
+		 *  id: id of the element
+		 */
+		
+		if (! this.alive[id]) return;
+		
+		this.alive[id] = false;
+		this.free[this.nbFree] = id;
+		this.nbFree += 1;
+		
+	}
+	
+	public int count() {
+		/*
+		 * Returns the number of elements alive.
+		 */
+		
+		return this.next - this.nbFree;
+		
+	}
+	
+	private void allocate(int size) {
+		/*
+		 * Makes every array hold size elements, keeping the elements already there.
+		 * In:
+		 *  size: new length
+		 */
+		
+		if (this.x == null) {
+			this.x = new int[size]; this.y = new int[size];
+			this.color = new byte[size]; this.kind = new byte[size];
+			this.hori = new boolean[size]; this.tl = new boolean[size];
+			this.friend = new int[size]; this.slot = new int[size];
+			this.alive = new boolean[size];
+			this.views = new Cell[size];
+			this.free = new int[size];
+			return;
+		}
+		
+		this.x = Arrays.copyOf(this.x, size); this.y = Arrays.copyOf(this.y, size);
+		this.color = Arrays.copyOf(this.color, size); this.kind = Arrays.copyOf(this.kind, size);
+		this.hori = Arrays.copyOf(this.hori, size); this.tl = Arrays.copyOf(this.tl, size);
+		this.friend = Arrays.copyOf(this.friend, size); this.slot = Arrays.copyOf(this.slot, size);
+		this.alive = Arrays.copyOf(this.alive, size);
+		this.views = Arrays.copyOf(this.views, size);
+		this.free = Arrays.copyOf(this.free, size);
+		
+	}
+	
+	public void reset() {
+		/*
+		 * Removes every element. The views are kept to be given again.
+		 */
+		
+		Arrays.fill(this.alive, false);
+		this.nbFree = 0;
+		this.next = 0;
+		
+	}
+
+}
@@ -1,18 +1,22 @@
 /*
  * Elements that appear on the grid and block the cells. Can't be destroyed.
  * They disappear after each level.
+ * New stones are created with Entities.newStone.
  */
 
 package elements;
 
-import game.Grid;
-
 public class Stone extends Cell {
 
-	public Stone(Grid grid, int x, int y) {
+	Stone(Entities es, int id) {
+		
+		super(es, id);
+		
+	}
+	
+	byte kind() {
 		
-		// set to a cell that isn't fused with color 1
-		super(grid, x, y, false, false, null, 1);
+		return Entities.STONE;
 		
 	}
 	
@@ -0,0 +1,41 @@
+/*
+ * Java Flight Recorder event of a detection and deletion of the alignments (Game.deleteLines) that found
+ * something to delete (look up FrameEvent for the recordings).
+ * The chain tells where the deletion is in a cascade: 1 for the lines made by the capsule, 2 for the ones
+ * made by the cells that fell after them, ...
+ * 
+ * Libraries:
+ *  jdk.jfr
+ */
+
+package flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("smiletris.Clear")
+@Label("Line Clear")
+@Category("Smiletris")
+@Description("Alignments deleted")
+@StackTrace(false)
+public class ClearEvent extends jdk.jfr.Event {
+	
+	@Label("Cases")
+	@Description("Number of cases in the alignments")
+	public int cases;
+	
+	@Label("Kills")
+	@Description("Number of elements deleted")
+	public int kills;
+	
+	@Label("Chain")
+	@Description("Number of deletions since the capsule landed")
+	public int chain;
+	
+	@Label("Fast-forward")
+	public boolean fastForward;
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Java Flight Recorder event of a random event applied or cancelled by the event handler
+ * (EventHandler.applyEvents; look up FrameEvent for the recordings).
+ * The kills tell how many elements the event deleted itself (exit, eraser, ...); the cells that fall and
+ * the lines they make afterwards are in the next frames.
+ * 
+ * Libraries:
+ *  jdk.jfr
+ */
+
+package flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("smiletris.Effect")
+@Label("Event Applied")
+@Category("Smiletris")
+@Description("A random event applied or cancelled")
+@StackTrace(false)
+public class EffectEvent extends jdk.jfr.Event {
+	
+	// names of the events, by number (the functions of EventHandler)
+	public static final String[] NAMES = {"bomb", "locker", "three", "shuffler", "blocker", "elevator", "green",
+			"exit", "stone", "cutter", "gift", "eraser", "alcoholic", "five", "sun", "starter", "joker", "ghost",
+			"mirror", "speeder"};
+	
+	@Label("Event")
+	public String event;
+	
+	@Label("Activated")
+	@Description("Applied (true) or cancelled (false)")
+	public boolean activate;
+	
+	@Label("Length")
+	@Description("Number of capsules the event lasts")
+	public int length;
+	
+	@Label("Kills")
+	@Description("Number of elements deleted by the event")
+	public int kills;
+
+}
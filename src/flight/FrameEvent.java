@@ -0,0 +1,44 @@
+/*
+ * Java Flight Recorder event of one frame of a game (Game.frame), from the start of the update to the end of
+ * the alcoholic's moves.
+ * The events of this package are only written while a recording is on (java -XX:StartFlightRecording or
+ * jcmd <pid> JFR.start); otherwise each of them only costs a check. The settings of the recording decide
+ * which ones are kept, for example with a threshold on the duration to keep only the slow frames:
+ *  jfr print --events smiletris.Frame recording.jfr
+ * 
+ * Libraries:
+ *  jdk.jfr
+ */
+
+package flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("smiletris.Frame")
+@Label("Frame")
+@Category("Smiletris")
+@Description("One frame of a game")
+@StackTrace(false)
+public class FrameEvent extends jdk.jfr.Event {
+	
+	@Label("Frame")
+	@Description("Number of the frame in the game (the frames where cells fall after a line aren't counted)")
+	public long frame;
+	
+	@Label("Falling")
+	@Description("Were cells falling after a line?")
+	public boolean falling;
+	
+	@Label("Elements")
+	@Description("Number of cells, smileys and stones on the grid at the end of the frame")
+	public int elements;
+	
+	@Label("Delay")
+	@Description("Time until the next frame, in milliseconds")
+	public int delay;
+
+}
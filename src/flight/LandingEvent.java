@@ -0,0 +1,40 @@
+/*
+ * Java Flight Recorder event of a capsule that stopped falling: its cells (or smileys, with the sun event)
+ * are added to the grid and a bomb explodes (look up FrameEvent for the recordings).
+ * 
+ * Libraries:
+ *  jdk.jfr
+ */
+
+package flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("smiletris.Landing")
+@Label("Capsule Landing")
+@Category("Smiletris")
+@Description("A capsule stopped falling")
+@StackTrace(false)
+public class LandingEvent extends jdk.jfr.Event {
+	
+	@Label("Capsule")
+	@Description("Number of the capsule in the game")
+	public int capsule;
+	
+	@Label("X")
+	public int x;
+	
+	@Label("Y")
+	public int y;
+	
+	@Label("Horizontal")
+	public boolean hori;
+	
+	@Label("Bomb")
+	public boolean bomb;
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Java Flight Recorder event of a repaint of the canvas (Canvas.paint; look up FrameEvent for the
+ * recordings).
+ * 
+ * Libraries:
+ *  jdk.jfr
+ */
+
+package flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("smiletris.Paint")
+@Label("Paint")
+@Category("Smiletris")
+@Description("A repaint of the canvas")
+@StackTrace(false)
+public class PaintEvent extends jdk.jfr.Event {
+	
+	@Label("In Game")
+	@Description("Was a game drawn (false for the menu)?")
+	public boolean inGame;
+	
+	@Label("Full")
+	@Description("Was everything drawn again (false when only the changes were)?")
+	public boolean full;
+	
+	@Label("Cases")
+	@Description("Number of cases of the grid drawn again")
+	public int cases;
+	
+	@Label("Width")
+	public int width;
+	
+	@Label("Height")
+	public int height;
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Totals of the games run by a BatchRunner.
+ * Each worker fills its own result, then the results are merged, so the workers never share anything.
+ */
+
+package game;
+
+public class BatchResult {
+	
+	public long games,         // number of games run
+				frames,        // number of frames run
+				levelsCleared, // number of levels cleared
+				capsules,      // number of capsules that finished their fall
+				kills,         // number of cells and smileys deleted
+				events,        // number of events applied
+				lost;          // number of games lost (the others reached the frame limit)
+	public final long[] fired; // fired[event]: number of times each event was applied
+	public long nanos;         // time spent running the whole batch
+	
+	public BatchResult(int nbEvents) {
+		
+		this.fired = new long[nbEvents];
+		
+	}
+	
+	public void add(GameEngine engine, long frames, int startLevel) {
+		/*
+		 * Adds a game that is over to the totals.
+		 * In:
+		 *  engine: engine that ran the game
+		 *  frames: number of frames it ran
+		 *  startLevel: level the game started at
+		 */
+		
+		this.games += 1;
+		this.frames += frames;
+		this.levelsCleared += engine.game.level - startLevel;
+		this.capsules += engine.game.capsules;
+		this.kills += engine.game.kills;
+		if (engine.game.lost) this.lost += 1;
+		for (int i = 0; i < this.fired.length; i++) {
+			this.fired[i] += engine.eh.fired[i];
+			this.events += engine.eh.fired[i];
+		}
+		
+	}
+	
+	public void merge(BatchResult other) {
+		/*
+		 * Adds the totals of another result to this one.
+		 * In:
+		 *  other: result to add
+		 */
+		
+		this.games += other.games;
+		this.frames += other.frames;
+		this.levelsCleared += other.levelsCleared;
+		this.capsules += other.capsules;
+		this.kills += other.kills;
+		this.events += other.events;
+		this.lost += other.lost;
+		for (int i = 0; i < this.fired.length; i++) this.fired[i] += other.fired[i];
+		
+	}
+	
+	public double lossRate() {
+		
+		return this.games == 0? 0 : (double) this.lost / this.games;
+		
+	}
+	
+	public String toString() {
+		
+		double seconds = this.nanos / 1e9;
+		
+		String t = "games: " + this.games + ", lost: " + this.lost
+				+ " (" + String.format("%.1f", 100 * this.lossRate()) + " %)\n";
+		t += "levels cleared: " + this.levelsCleared + ", capsules: " + this.capsules
+				+ ", kills: " + this.kills + ", events: " + this.events + "\n";
+		t += "frames: " + this.frames;
+		if (seconds > 0)
+			t += " in " + String.format("%.2f", seconds) + " s ("
+				+ String.format("%.0f", this.frames / seconds) + " frames/s, "
+				+ String.format("%.0f", this.games / seconds) + " games/s)";
+		
+		return t;
+		
+	}
+
+}
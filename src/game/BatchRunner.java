@@ -0,0 +1,177 @@
+/*
+ * Runs many headless games in parallel and adds up their results (look up BatchResult).
+ * Used to measure how hard the levels are and how the events are balanced.
+ * 
+ * The games are split between the threads of a ForkJoinPool. Each range of games is run by one thread
+ * with its own totals, which are merged at the end, so the threads never wait for each other.
+ * The game i plays with a seed made from the batch's seed and i, so a batch gives the same totals
+ * whatever the number of threads.
+ * 
+ * Usage from the command line:
+ *  java game.BatchRunner [games] [threads] [seed] [level] [maxFrames] [policy]
+ *  (policy: landing, the default, steers the capsules (look up LandingPolicy); random presses random keys)
+ *  (with -Dsmiletris.timings=true, the times of the parts of the frames are written at the end)
+ */
+
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+public class BatchRunner {
+	
+	public final int width, height;
+	public int startLevel; // level every game starts at
+	public long maxFrames; // a game that isn't lost after this many frames is stopped
+	public boolean fastForward; // are the frames only there for the visuals skipped? (on by default)
+	public Timings timings;     // shared by every game of the batch (null if the frames aren't timed)
+	final LongFunction<InputPolicy> policies; // makes the policy of a game from its seed
+	
+	static final int grain = 16; // number of games under which a range isn't split anymore
+	
+	public BatchRunner(int width, int height, LongFunction<InputPolicy> policies) {
+		
+		this.width = width; this.height = height;
+		this.startLevel = 0;
+		this.maxFrames = 100000;
+		this.fastForward = true;
+		this.timings = null;
+		this.policies = policies;
+		
+	}
+	
+	public BatchResult run(int games, int threads, long seed) {
+		/*
+		 * Runs games games on threads threads and returns their totals.
+		 * In:
+		 *  games: number of games
+		 *  threads: number of threads
+		 *  seed: seed of the batch
+		 */
+		
+		long start = System.nanoTime();
+		
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		BatchResult res;
+		try {
+			res = pool.invoke(new Range(this, seed, 0, games));
+		} finally {
+			pool.shutdown();
+		}
+		
+		res.nanos = System.nanoTime() - start;
+		
+		return res;
+		
+	}
+	
+	BatchResult runRange(long seed, int from, int to) {
+		/*
+		 * Runs the games from from (included) to to (excluded) one after the other.
+		 * In:
+		 *  seed: seed of the batch
+		 *  from, to: indexes of the games
+		 */
+		
+		BatchResult res = new BatchResult(EventHandler.defaultNbEvents);
+		
+		for (int i = from; i < to; i++) {
+			
+			long gameSeed = BatchRunner.gameSeed(seed, i);
+			GameEngine engine = new GameEngine(new Grid(this.width, this.height), gameSeed);
+			engine.setFastForward(this.fastForward);
+			engine.game.timings = this.timings;
+			InputPolicy policy = this.policies.apply(gameSeed);
+			
+			engine.start(this.startLevel);
+			StepResult r = null;
+			long f = 0;
+			while (f < this.maxFrames) {
+				r = engine.step(policy.next(engine.game, r));
+				f += 1;
+				if (! r.onGoing) break;
+			}
+			
+			res.add(engine, f, this.startLevel);
+			
+		}
+		
+		return res;
+		
+	}
+	
+	static long gameSeed(long seed, int i) {
+		/*
+		 * Returns the seed of the game i of a batch.
+		 * In:
+		 *  seed: seed of the batch
+		 *  i: index of the game
+		 */
+		
+		return new SplittableRandom(seed + i * 0x9E3779B97F4A7C15L).nextLong();
+		
+	}
+	
+	public static void main(String[] args) {
+		/*
+		 * Runs a batch and prints its totals.
+		 */
+		
+		int games = args.length > 0? Integer.parseInt(args[0]) : 10000;
+		int threads = args.length > 1? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2? Long.parseLong(args[2]) : 0;
+		
+		String policy = args.length > 5? args[5] : "landing";
+		
+		BatchRunner runner = new BatchRunner(8, 19,
+				policy.equals("random")? RandomPolicy::new : LandingPolicy::new);
+		if (args.length > 3) runner.startLevel = Integer.parseInt(args[3]);
+		if (args.length > 4) runner.maxFrames = Long.parseLong(args[4]);
+		
+		if (Boolean.getBoolean("smiletris.timings")) runner.timings = new Timings();
+		
+		System.out.println(runner.run(games, threads, seed));
+		if (runner.timings != null) runner.timings.dump(System.out);
+		
+	}
+
+}
+
+class Range extends RecursiveTask<BatchResult> {
+	/*
+	 * Range of games of a batch, split in two until it is small enough to be run by one thread.
+	 */
+	
+	private static final long serialVersionUID = 1L;
+	
+	final BatchRunner runner;
+	final long seed;
+	final int from, to;
+	
+	Range(BatchRunner runner, long seed, int from, int to) {
+		
+		this.runner = runner;
+		this.seed = seed;
+		this.from = from; this.to = to;
+		
+	}
+	
+	protected BatchResult compute() {
+		
+		if (this.to - this.from <= BatchRunner.grain)
+			return this.runner.runRange(this.seed, this.from, this.to);
+		
+		int mid = (this.from + this.to) / 2;
+		Range left = new Range(this.runner, this.seed, this.from, mid);
+		Range right = new Range(this.runner, this.seed, mid, this.to);
+		left.fork();
+		BatchResult res = right.compute();
+		res.merge(left.join());
+		
+		return res;
+		
+	}
+
+}
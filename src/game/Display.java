@@ -0,0 +1,15 @@
+/*
+ * What the game needs from whatever shows it (the canvas in the window).
+ * A game can run without any display, for example when it is driven by a GameEngine.
+ */
+
+package game;
+
+public interface Display {
+	
+	public void reset();                           // the level is starting again
+	public void setButtonStates(String state);     // "game", "menu", "titlescreen" or "pause"
+	public void repaint();                         // the state of the game changed
+	public void stop();                            // the game is stopped
+
+}
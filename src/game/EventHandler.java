@@ -27,18 +27,14 @@
  *  18: mirror  | left and right are inversed, same for up and down
  *  19: speeder | everything is 2x faster
  * All of the functions named after an event will return the duration during which they will happen. 1 is instantaneous.
- * 
- * Libraries:
- *  java.util
  */
 
 package game;
 
-import java.util.Random;
-
 import elements.Cell;
 import elements.Smiley;
 import elements.Stone;
+import flight.EffectEvent;
 
 public class EventHandler {
 	
@@ -64,7 +60,11 @@ public class EventHandler {
 	
 	public int counter, counterTot, state;
 	
-	Random rnd;
+	public final int[] fired; // fired[event]: number of times the event was applied since the game was created
+	
+	public static final int defaultNbEvents = 20; // number of events of a handler (look up BatchResult)
+	
+	Rng rnd; // the game's stream for the events
 
 	public EventHandler(Game game) {
 		
@@ -72,14 +72,16 @@ public class EventHandler {
 		
 		this.isActive = true;
 		
-		this.nbEvents = 20;
+		this.nbEvents = EventHandler.defaultNbEvents;
 		
 		this.avgDelay = 45;
 		
 		this.blockerX = this.game.grid.width / 2 - 2; this.blockerY = this.game.gdMin;
 		this.blockerWidth = 4; this.blockerHeight = 4;
 		
-		this.rnd = new Random();
+		this.rnd = this.game.evtRnd;
+		
+		this.fired = new int[this.nbEvents];
 		
 		this.reset();
 		
@@ -95,6 +97,9 @@ public class EventHandler {
 		
 		if (! this.isActive) return false;
 		
+		Timings tm = this.game.timings;
+		long t = tm != null? System.nanoTime() : 0;
+		
 		this.counter -= 1;
 		
 		if (this.counter <= 0 && arrived) {
@@ -110,6 +115,7 @@ public class EventHandler {
 			case 1:
 				this.counterTot = this.applyEvents(true);
 				this.counter = this.counterTot;
+				this.fired[this.cur] += 1;
 				break;
 			// event has ended -> cancel it and restart
 			case 2:
@@ -123,6 +129,8 @@ public class EventHandler {
 			
 		}
 		
+		if (tm != null) tm.events.since(t);
+		
 		return true;
 		
 	}
@@ -148,7 +156,35 @@ public class EventHandler {
 	
 	private int applyEvents(boolean activate) {
 		/*
-		 * Applies the event put in this.cur.
+		 * Applies the event put in this.cur, and records it when a flight recording is on (look up
+		 * flight.EffectEvent).
+		 * In:
+		 *  activate: activate or desactivate (cancel) the events
+		 * Out:
+		 *  duration of the event
+		 */
+		
+		EffectEvent ee = new EffectEvent();
+		ee.begin();
+		int k = this.game.kills;
+		
+		int d = this.runEvent(activate);
+		
+		if (ee.shouldCommit()) {
+			ee.event = EffectEvent.NAMES[this.cur];
+			ee.activate = activate;
+			ee.length = d;
+			ee.kills = this.game.kills - k;
+			ee.commit();
+		}
+		
+		return d;
+		
+	}
+	
+	private int runEvent(boolean activate) {
+		/*
+		 * Calls the function of the event put in this.cur.
 		 * In:
 		 *  activate: activate or desactivate (cancel) the events
 		 * Out:
@@ -266,8 +302,10 @@ public class EventHandler {
 		}
 		
 		if (activate) this.game.deleteElements(dead);
-		for (int[] coords: dead)
-			this.game.grid.g[coords[0]][coords[1]] = fill;
+		for (int[] coords: dead) {
+			this.game.grid.set(coords[0], coords[1], fill);
+			this.game.grid.touch(coords[0], coords[1]);
+		}
 		
 		this.game.deletingCells = true;
 		
@@ -280,48 +318,55 @@ public class EventHandler {
 		
 		if (! activate) return 0;
 		
-		int[][] gCopy = this.game.grid.g.clone();
+		// copy of the grid before anything moves (look up Grid.get to read it)
+		byte[] gCopy = this.game.grid.copy();
+		int h = this.game.grid.height;
 		
 		/*
 		 * killing the cells at the top
 		 * to create dead with a correct size, we loop through the top line and count how many cases aren't filled with a 0
 		 */
 		int count = 0;
-		for (int i: gCopy[0]) if (i != 0) count += 1;
+		for (int x = 0; x < this.game.grid.width; x++) if (gCopy[x * h] != 0) count += 1;
 		int[][] dead = new int[count][2];
 		this.game.deletingCells = count != 0;
 		
+		/*
+		 * the cells at the top get killed first, while they are still the elements of their cases on the grid
+		 * (the cells under them take their place when they move up)
+		 */
+		count = - 1;
+		for (Cell c: this.game.cells)
+			if (c != null) if (c.getY() == 0) {
+				count += 1;
+				dead[count][0] = c.getX(); dead[count][1] = c.getY();
+			}
+		for (Smiley s: this.game.smileys)
+			if (s != null) if (s.getY() == 0) {
+				count += 1;
+				dead[count][0] = s.getX(); dead[count][1] = s.getY();
+			}
+		if (dead.length != 0) this.game.deleteElements(dead);
+		
 		/*
 		 * moving up
-		 * if a cell is at the top, it gets killed;
-		 * if it is at the bottom, to avoid asking for items out of range, we immediately set the parameter of moveUp to true;
+		 * if a cell is at the bottom, to avoid asking for items out of range, we immediately set the parameter of moveUp to true;
 		 * otherwise, we set the parameter depending on the case under -> if it used to be filled (seen in gCopy), it might have already been
 		 * changed by an other cell so we don't change it again
 		 * we have to do it for both the cells and the smileys
 		 */
-		count = - 1;
 		for (Cell c: this.game.cells)
 			if (c == null) continue;
-			else if (c.y == 0) {
-				count += 1;
-				dead[count][0] = c.x; dead[count][1] = c.y;
-				continue;
-			} else if (c.y == this.game.grid.height - 1)
+			else if (c.getY() == this.game.grid.height - 1)
 				c.moveUp(true);
 			else
-				c.moveUp(gCopy[c.x][c.y + 1] == 0);
+				c.moveUp(gCopy[c.getX() * h + c.getY() + 1] == 0);
 		for (Smiley s: this.game.smileys)
 			if (s == null) continue;
-			else if (s.y == 0) {
-				count += 1;
-				dead[count][0] = s.x; dead[count][1] = s.y;
-				continue;
-			} else if (s.y == this.game.grid.height - 1)
+			else if (s.getY() == this.game.grid.height - 1)
 				s.moveUp(true);
 			else
-				s.moveUp(gCopy[s.x][s.y + 1] == 0);
-		
-		this.game.deleteElements(dead);
+				s.moveUp(gCopy[s.getX() * h + s.getY() + 1] == 0);
 		
 		return 1;
 		
@@ -351,8 +396,8 @@ public class EventHandler {
 			s = this.game.smileys[i];
 			if (s == null) continue;
 			count += 1;
-			dead[count][0] = s.x;
-			dead[count][1] = s.y;
+			dead[count][0] = s.getX();
+			dead[count][1] = s.getY();
 		}
 		this.game.deleteElements(dead);
 		
@@ -368,7 +413,7 @@ public class EventHandler {
 		
 		// find the next null element in this.stones
 		int pos = 0;
-		while (this.stones[pos] != null && pos < this.stones.length) pos += 1;
+		while (pos < this.stones.length && this.stones[pos] != null) pos += 1;
 		if (pos >= this.stones.length) return 1;
 		
 		int x, y;
@@ -377,7 +422,8 @@ public class EventHandler {
 		
 		this.game.checkNewStone(x, y);
 		
-		this.stones[pos] = new Stone(this.game.grid, x, y);
+		this.stones[pos] = this.game.grid.entities.newStone(x, y);
+		this.stones[pos].setSlot(pos);
 		
 		return 1;
 		
@@ -392,13 +438,13 @@ public class EventHandler {
 		int co = 0;
 		while (co == 0) {
 			row = this.rnd.nextInt(this.game.grid.height);
-			for (int i = 0; i < this.game.grid.width; i++) if (this.game.grid.g[i][row] != 0) co += 1;
+			for (int i = 0; i < this.game.grid.width; i++) if (this.game.grid.get(i, row) != 0) co += 1;
 		}
 		
 		int[][] dead = new int[co][2];
 		co = - 1;
 		for (int i = 0; i < this.game.grid.width; i++) {
-			if (this.game.grid.g[i][row] != 0) {
+			if (this.game.grid.get(i, row) != 0) {
 				co += 1;
 				dead[co][0] = i;
 				dead[co][1] = row;
@@ -417,16 +463,10 @@ public class EventHandler {
 		
 		if (! activate) return 0;
 		
-		// searching for null elements in this.game.cells
-		int[] cols = new int[this.game.grid.width];
-		for (int i = 1; i < cols.length; i++) {
-			while (this.game.cells[cols[i]] != null) cols[i] += 1;
-			if (i != cols.length - 1) cols[i + 1] = cols[i] + 1;
-		}
-		
-		for (int i = 0; i < cols.length; i++)
-			if (this.game.grid.g[i][0] == 0)
-				this.game.cells[cols[i]] = new Cell(this.game.grid, i, 0, false, false, null, this.rnd.nextInt(this.game.colMax) + 2);
+		// one new cell at the top of each free column, stored in the free spots of this.game.cells
+		for (int i = 0; i < this.game.grid.width; i++)
+			if (this.game.grid.get(i, 0) == 0)
+				this.game.addCell(this.game.grid.entities.newCell(i, 0, false, false, null, this.rnd.nextInt(this.game.colMax) + 2));
 		
 		return 1;
 		
@@ -440,23 +480,23 @@ public class EventHandler {
 		
 		int co = 0;
 		for (Smiley sT: this.game.smileys)
-			if (sT != null) if (sT.color == col) co += 1;
+			if (sT != null) if (sT.getColor() == col) co += 1;
 		for (Cell cT: this.game.cells)
-			if (cT != null) if (cT.color == col) co += 1;
+			if (cT != null) if (cT.getColor() == col) co += 1;
 		
 		int[][] dead = new int[co][2];
 		co = - 1;
 		for (Smiley s: this.game.smileys)
-			if (s != null) if (s.color == col) {
+			if (s != null) if (s.getColor() == col) {
 				co += 1;
-				dead[co][0] = s.x;
-				dead[co][1] = s.y;
+				dead[co][0] = s.getX();
+				dead[co][1] = s.getY();
 			}
 		for (Cell c: this.game.cells)
-			if (c != null) if (c.color == col) {
+			if (c != null) if (c.getColor() == col) {
 				co += 1;
-				dead[co][0] = c.x;
-				dead[co][1] = c.y;
+				dead[co][0] = c.getX();
+				dead[co][1] = c.getY();
 			}
 		
 		this.game.deleteElements(dead);
@@ -496,12 +536,7 @@ public class EventHandler {
 		if (! activate) return 0;
 		
 		// verifying that there is enough space to store two new smileys
-		int count = 0;
-		for (Smiley s: this.game.smileys) {
-			if (s == null) count += 1;
-			if (count >= 2) break;
-		}
-		if (count < 2)
+		if (this.game.smileySlots.freeCount() < 2)
 			this.sunOn = false;
 		
 		return 1;
@@ -574,6 +609,8 @@ public class EventHandler {
 		
 		this.applyEvents(false);
 		
+		this.rnd = this.game.evtRnd; // split again when a game starts
+		
 		eventsIni = new int[this.nbEvents]; events = new int[this.nbEvents];
 		for (int i = 0; i < this.eventsIni.length; i++)
 			eventsIni[i] = i;
@@ -8,14 +8,15 @@
 
 package game;
 
-import java.util.Random;
-import java.util.Timer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 import elements.Capsule;
 import elements.Cell;
 import elements.Smiley;
-
-import visuals.Canvas;
+import flight.ClearEvent;
+import flight.FrameEvent;
+import flight.LandingEvent;
 
 public class Game {
 
@@ -34,22 +35,47 @@ public class Game {
 	public Capsule curCap;
 	public Smiley[] smileys;
 	public Cell[] cells;
-	boolean[] canFall;
+	public final Slots cellSlots; // used and free indexes of this.cells
+	public Slots smileySlots;     // used and free indexes of this.smileys
+	final Gravity grav; // makes the cells fall after lines are deleted
 	public int upComingC0, upComingC1;
 	int nextCapX, nextCapY;
 	
 	// utils
 	
-	final Timer timer;
+	GameLoop loop; // only made when the game runs its own frames (look up timed)
+	boolean timed; // does the game schedule its own frames? (false when it is driven by a GameEngine)
 	final int delay,     // time between two falls of the capsule
 			  delDelay,  // time spent on a frame where cells are getting deleted
 			  gravDelay, // time between two falls of a cell with the gravity function
 			  genDelay,  // time between two smiley's appearances at the game's generation
 			  downDelay; // time between two falls of the capsule when the down arrow is used
 	float speeder; // number to delete by (in case the speeder event is on)
-	GameTask latestGT;
-	public float timeSpent;
-	final Random rnd;
+	public boolean fastForward; // are the delays ignored? (look up setFastForward)
+	public float timeSpent; // time the game has been running, in milliseconds
+	
+	/*
+	 * randomness
+	 * every game has one seed, split into independent streams so that using one of them doesn't change what
+	 * the others give: the same seed and the same inputs always play the same game
+	 * the streams are split again every time a game starts (look up reseed): the first game uses the seed
+	 * itself, the next ones (after going back to the title screen) use seeds drawn from it
+	 * (the canvas has its own randomness, only for the visuals)
+	 */
+	public final long seed;
+	public long playSeed;        // seed the streams of the current game were split from
+	Rng seeds;    // seeds of the games after the first one
+	int nbPlays;  // number of games started
+	Rng genRnd,   // level generation (smileys)
+		capRnd;   // colors of the capsules
+	public Rng evtRnd; // events (used by the event handler)
+	
+	// replays
+	
+	public Recorder recorder; // records the inputs (null when nothing is recorded)
+	public Timings timings;   // times spent in each part of a frame (null when they aren't measured)
+	public long playFrames;   // number of frames of the game, without the ones where cells fall after a line
+	int chain;                // number of deletions since the capsule landed (look up flight.ClearEvent)
 	
 	// rules
 	
@@ -67,10 +93,15 @@ public class Game {
 	// events
 	public EventHandler eh;
 	
+	// stats (look up GameEngine)
+	
+	public int kills,    // number of elements deleted since the game was created
+			   capsules; // number of capsules that finished their fall
+	
 	// visuals
 	
 	final String mode;
-	Canvas can;
+	Display can; // the canvas, null if the game has no display
 	
 	// text
 	
@@ -78,6 +109,13 @@ public class Game {
 	
 	public Game(Grid grid) {
 		
+		// random seed
+		this(grid, new SplittableRandom().nextLong());
+		
+	}
+	
+	public Game(Grid grid, long seed) {
+		
 		this.grid = grid;
 		
 		this.onGoing = false;
@@ -100,18 +138,31 @@ public class Game {
 		 * this.smileys is set every time the board is reset
 		 * this.cells is set up to contain, if needed, an element for each case of the grid
 		 * most of its elements are null
+		 * the slots give the free indexes of both arrays and the list of the used ones
 		 */
-		this.canFall = new boolean[this.cells.length];
+		this.cellSlots = new Slots(this.cells.length);
+		this.smileySlots = new Slots(0);
+		this.grav = new Gravity(this);
 		
-		this.timer = new java.util.Timer();
+		this.loop = null;
+		this.timed = true;
 		this.delay = 650;
 		this.delDelay = this.delay;
 		this.gravDelay = 50;
 		this.genDelay = 20;
 		this.downDelay = 50;
 		this.speeder = 1;
+		this.fastForward = false;
 		this.timeSpent = 0;
-		this.rnd = new Random();
+		
+		this.seed = seed;
+		this.seeds = new Rng(seed);
+		this.nbPlays = 0;
+		this.reseed(seed);
+		
+		this.recorder = null;
+		this.timings = null;
+		this.playFrames = 0;
 		
 		this.alignLength = 4;
 		this.lvlButMax   = 8;
@@ -133,6 +184,9 @@ public class Game {
 		
 		this.can = null; // will be set later
 		
+		this.kills = 0;
+		this.capsules = 0;
+		
 		this.startMenuText = new String[] {
 				// title
 				"Smiletris 4",
@@ -163,8 +217,32 @@ public class Game {
 		 * Sets the next state of the game.
 		 */
 		
+		// in fast-forward, the cells land and the lines are deleted in one frame
+		if (this.isFalling && this.fastForward) {
+			
+			Timings tm = this.timings;
+			long t = 0;
+			while (this.isFalling) {
+				this.deletingCells = false;
+				this.lastDeaths = null;
+				if (tm != null) t = System.nanoTime();
+				this.settle();
+				if (tm != null) tm.gravity.since(t);
+				this.downOn = false;
+				if (tm != null) t = System.nanoTime();
+				this.deleteLines();
+				if (tm != null) tm.deleteLines.since(t);
+				if (this.grav.prepare() == 0) {
+					this.isFalling = false;
+					this.finish = false;
+					if (tm != null) t = System.nanoTime();
+					this.lastChecks();
+					if (tm != null) tm.lastChecks.since(t);
+				}
+			}
+		
 		// cells are falling after a line was deleted
-		if (this.isFalling) {
+		} else if (this.isFalling) {
 			
 			/*
 			 * the function is ran only after every cell has fallen the furthest it could
@@ -176,24 +254,32 @@ public class Game {
 				this.deletingCells = false;
 				this.lastDeaths = null;
 			
-			} else if (this.countCanFall() == 0) {
+			// the final positions are computed once, then the cells move by one case per frame
+			} else if (this.grav.isMoving() || this.grav.prepare() > 0) {
+				long t = this.timings != null? System.nanoTime() : 0;
+				this.grav.step();
+				if (this.timings != null) this.timings.gravity.since(t);
+				this.deletingCells = false;
+				this.lastDeaths = null;
+			
+			} else {
 				
 				// cancelling the down arrow
 				this.downOn = false;
 				
+				long t = this.timings != null? System.nanoTime() : 0;
 				this.deleteLines();
+				if (this.timings != null) this.timings.deleteLines.since(t);
 				
 				// if no cell can fall, the next capsule will be generated
-				if (this.countCanFall() == 0) {
+				if (this.grav.prepare() == 0) {
 					this.isFalling = false;
 					this.finish = false;
+					if (this.timings != null) t = System.nanoTime();
 					this.lastChecks();
+					if (this.timings != null) this.timings.lastChecks.since(t);
 				}
 			
-			} else {
-				this.gravity();
-				this.deletingCells = false;
-				this.lastDeaths = null;
 			}
 		
 		// seting up the next capsule after the previous one was placed
@@ -201,8 +287,8 @@ public class Game {
 			
 			// if the start randomizer event is on...
 			if (this.eh != null) if (this.eh.isActive) if (this.eh.starterOn) {
-				int pos = this.rnd.nextInt(this.grid.width - 1);
-				while (this.grid.isStuck(pos, this.nextCapY)) pos = this.rnd.nextInt(this.grid.width - 1);
+				int pos = this.evtRnd.nextInt(this.grid.width - 1);
+				while (this.grid.isStuck(pos, this.nextCapY)) pos = this.evtRnd.nextInt(this.grid.width - 1);
 				this.nextCapX = pos;
 			} else {
 				this.nextCapX = this.grid.width / 2 - 1;
@@ -212,15 +298,17 @@ public class Game {
 			this.curCap = new Capsule(this.grid, this.nextCapX, this.nextCapY,
 					this.upComingC0, this.upComingC1); // the colors are decided in advance
 			// next color
-			this.upComingC0 = this.rnd.nextInt(this.colMax) + 2;
-			this.upComingC1 = this.rnd.nextInt(this.colMax) + 2;
+			this.upComingC0 = this.capRnd.nextInt(this.colMax) + 2;
+			this.upComingC1 = this.capRnd.nextInt(this.colMax) + 2;
 			
 			this.deletingCells = false;
 			this.lastDeaths = null;
 		
 		// if the capsule is currently falling (most common state)
 		} else if (this.curCap.canFall() && ! this.finish) {
+			long t = this.timings != null? System.nanoTime() : 0;
 			this.curCap.fall();
+			if (this.timings != null) this.timings.capsule.since(t);
 			// events
 			if (this.eh != null) this.eh.decrease(false);
 		}
@@ -228,36 +316,27 @@ public class Game {
 		// the capsule just stopped falling
 		else {
 			
-			Cell[] src = this.cells;
+			LandingEvent le = new LandingEvent();
+			le.begin();
 			
 			// sun event
 			boolean sunCond = false;
 			if (this.eh != null) sunCond = this.eh.isActive && this.eh.sunOn;
-			// the program will change a little bit if the sun event is on...
-			if (sunCond) src = this.smileys;
 			
 			/*
-			 * finding two empty spots in this.cells
-			 * this.cells can look like this after some cells get destroyed:
+			 * creating the new cells
+			 * the slots give the empty spots left in this.cells after some cells got destroyed:
 			 *  cell null cell cell null cell null null null ...
 			 *        ^^             ^^
-			 * so the new cells need to be added here ("^^")
+			 * so the new cells are added here ("^^")
+			 * the first cell doesn't exist if the capsule ended above the grid
 			 */
-			int p0 = 0;
-			while (src[p0] != null) p0 += 1;
-			int p1 = p0 + 1;
-			while (src[p1] != null) p1 += 1;
-			
-			// creating the new cells
 			if (sunCond) {
-				Smiley[] resS = this.curCap.endLifeSun();
-				src[p0] = resS[0];
-				src[p1] = resS[1];
+				// the program will change a little bit if the sun event is on...
+				for (Smiley s: this.curCap.endLifeSun()) if (s != null) this.addSmiley(s);
 			} else {
 				// most common state
-				Cell[] res = this.curCap.endLife();
-				src[p0] = res[0];
-				src[p1] = res[1];
+				for (Cell c: this.curCap.endLife()) if (c != null) this.addCell(c);
 			}
 			
 			// was it a bomb?
@@ -284,6 +363,18 @@ public class Game {
 			if (this.eh != null) if (this.eh.isActive) this.eh.decrease(true);
 			// decreasing after the capsule has ended life
 			
+			this.capsules += 1;
+			this.chain = 0;
+			
+			if (le.shouldCommit()) {
+				le.capsule = this.capsules;
+				le.x = this.curCap.x;
+				le.y = this.curCap.y;
+				le.hori = this.curCap.hori;
+				le.bomb = this.curCap.c0 == 8;
+				le.commit();
+			}
+			
 			// emptying the current capsule
 			this.curCap = null;
 			
@@ -302,27 +393,35 @@ public class Game {
 	
 	public void gravity() {
 		/*
-		 * Makes every cell fall once (if it can).
+		 * Makes every cell that hasn't landed yet fall once.
 		 */
 		
-		if (this.countCanFall() > 0) {
-			for (int i = 0; i < this.cells.length; i++)
-				if (this.cells[i] != null) this.canFall[i] = this.cells[i].canFall();
-				else this.canFall[i] = false;
-			for (int i = 0; i < this.cells.length; i++)
-				if (this.cells[i] != null) if (this.canFall[i]) this.cells[i].fall(true);
-		}
+		if (this.grav.isMoving() || this.grav.prepare() > 0)
+			this.grav.step();
 				
 	}
 	
+	public int settle() {
+		/*
+		 * Makes every cell fall straight to where it lands, without waiting for the frames (used when nothing
+		 * needs to be displayed). Returns the number of cells that moved.
+		 */
+		
+		int n = this.grav.isMoving()? this.grav.nbLeft : this.grav.prepare();
+		this.grav.apply();
+		
+		return n;
+		
+	}
+	
 	public int countCanFall() {
 		/*
 		 * Returns the number of cells that can fall.
 		 */
 		
 		int c = 0;
-		for (Cell i: this.cells)
-			if (i != null) if (i.canFall()) c += 1;
+		for (int i = 0; i < this.cellSlots.nbLive; i++)
+			if (this.cells[this.cellSlots.live[i]].canFall()) c += 1;
 		return c;
 		
 	}
@@ -333,13 +432,7 @@ public class Game {
 		 */
 		
 		// is there any smiley left?
-		boolean smileysLeft = false;
-		for (int i = 0; i < this.smileys.length; i++)
-			if (this.smileys[i] != null) {
-				smileysLeft = true;
-				break;
-			}
-		if (! smileysLeft) {
+		if (this.smileySlots.nbLive == 0) {
 			this.onGoing = false;
 			this.init(this.level + 1, this.score);
 		}
@@ -357,54 +450,60 @@ public class Game {
 		 * Gets the cells to destroy and destroys them.
 		 */
 		
-		int[][] dead = this.grid.detect(this.alignLength);
+		ClearEvent ce = new ClearEvent();
+		ce.begin();
+		int k = this.kills;
 		
-		this.deletingCells = dead.length != 0;
+		// only the lines where something changed since the last time can contain a new alignment
+		int n = this.grid.scanChanges(this.alignLength);
+		
+		this.deletingCells = n != 0;
 		
 		// the cells to kill are given by locations so we need to get the object based on its coordinates
-		if (dead.length != 0) this.deleteElements(dead);
+		if (n != 0) this.deleteElements(this.grid.hits, n);
+		
+		if (n != 0) {
+			this.chain += 1;
+			if (ce.shouldCommit()) {
+				ce.cases = n;
+				ce.kills = this.kills - k;
+				ce.chain = this.chain;
+				ce.fastForward = this.fastForward;
+				ce.commit();
+			}
+		}
 		
 	}
 	
-	private int[][] fuse(int[][] a1, int[][] a2) {
+	public int frame() {
 		/*
-		 * Fuses a1 and a2. If a1 and a2 don't have the same sub-array length, the function returns null.
-		 * In:
-		 *  a1, a2: arrays to fuse
+		 * Runs one frame of the game: an update then the alcoholic's moves.
+		 * Returns how long the frame lasts, in milliseconds (0 if the game isn't going on).
 		 */
 		
-		if (a1 == null || a2 == null) return null;
-		if (a1.length == 0 || a2.length == 0) return null;
-		if (a1[0].length != a2[0].length) return null;
-		
-		int[][] f = new int[a1.length + a2.length][a1.length];
-		int c = - 1;
-		for (int i = 0; i < a1.length; i++) {
-			c += 1;
-			f[c] = a1[i];
-		}
-		for (int i = 0; i < a2.length; i++) {
-			c += 1;
-			f[c] = a1[i];
-		}
-		
-		return f;
-		
-	}
-	
-	public void loopExecute() {
 		/*
-		 * Function that is ran every x milliseconds.
-		 * Demands an update then schedules the next call of itself.
+		 * the frames where cells fall after a line are skipped by the fast-forward, so they aren't counted:
+		 * an input is at the same place in this count in both modes (look up Recorder)
 		 */
+		if (! this.isFalling) this.playFrames += 1;
 		
-		this.update();
+		FrameEvent fe = new FrameEvent();
+		fe.begin();
+		boolean falling = this.isFalling;
+		
+		if (this.timings == null)
+			this.update();
+		else {
+			long t = System.nanoTime();
+			this.update();
+			this.timings.update.since(t);
+		}
 		
 		// alcoholic
 		if (this.eh != null) if (this.eh.alcOn) if (this.curCap != null) {
 			int rndAlc = 5;
 			if (this.downOn) rndAlc = 15;
-			int move = this.rnd.nextInt(rndAlc);
+			int move = this.evtRnd.nextInt(rndAlc);
 			switch (move) {
 			case 0:
 				this.curCap.move(0);
@@ -418,47 +517,107 @@ public class Game {
 			}
 		}
 		
-		int d = this.delay;
-		
+		// change the delay
+		int d = 0;
 		if (this.onGoing) {
-			
-			// change the delay
+			d = this.delay;
 			if (this.deletingCells) d = this.delDelay;
 			else if (this.isFalling) d = this.gravDelay;
 			else if (this.downOn) d = this.downDelay;
 			d = Math.round(d / this.speeder);
-			this.timeSpent += d;
-			
-			// next frame
-			this.latestGT = new GameTask(this);
-			this.timer.schedule(this.latestGT, d);
-			
 		}
 		
+		if (fe.shouldCommit()) {
+			fe.frame = this.playFrames;
+			fe.falling = falling;
+			fe.elements = this.grid.entities.count();
+			fe.delay = d;
+			fe.commit();
+		}
+		
+		return d;
+		
+	}
+	
+	public GameLoop getLoop() {
+		/*
+		 * Returns the loop that runs the game's frames (made the first time it is needed). The frames run
+		 * synchronized on it, so whatever reads the game from another thread (the display, ...) locks it too.
+		 */
+		
+		if (this.loop == null) this.loop = new GameLoop(this);
+		
+		return this.loop;
+		
+	}
+	
+	public void addCell(Cell c) {
+		/*
+		 * Stores a new cell in a free spot of this.cells.
+		 * In:
+		 *  c: cell
+		 */
+		
+		int p = this.cellSlots.alloc();
+		c.setSlot(p);
+		this.cells[p] = c;
+		
 	}
 	
-	public void loopExecute(boolean startDelay) {
+	public void addSmiley(Smiley s) {
+		/*
+		 * Stores a new smiley in a free spot of this.smileys.
+		 * In:
+		 *  s: smiley
+		 */
 		
-		if (startDelay) {
-			this.timeSpent += this.delay;
-			this.latestGT = new GameTask(this);
-			this.timer.schedule(this.latestGT, this.delay);
-		} else
-			this.loopExecute();
+		int p = this.smileySlots.alloc();
+		s.setSlot(p);
+		this.smileys[p] = s;
+		
+	}
+	
+	private void removeCell(int p) {
+		/*
+		 * Kills the cell at the index p of this.cells and frees its spot.
+		 * In:
+		 *  p: index
+		 */
+		
+		this.cells[p].kill();
+		this.cells[p] = null;
+		this.cellSlots.release(p);
+		this.kills += 1;
+		
+	}
+	
+	private void removeSmiley(int p) {
+		/*
+		 * Kills the smiley at the index p of this.smileys and frees its spot.
+		 * In:
+		 *  p: index
+		 */
+		
+		this.smileys[p].kill();
+		this.smileys[p] = null;
+		this.smileySlots.release(p);
+		this.kills += 1;
 		
 	}
 	
 	public int getCorrespondingCell(int x, int y) {
 		/*
 		 * Returns a cell based on its coordinates.
+		 * The grid gives the element of the case directly; it is a cell if it is stored in this.cells at its
+		 * slot. Like the scan of this.cells it replaced, a case out of the grid (next to a bomb on a border)
+		 * has no cell.
 		 * In:
 		 *  x, y: coordinates
 		 */
 		
-		for (int i = 0; i < this.cells.length; i++)
-			if (this.cells[i] == null) continue;
-			else if (this.cells[i].x == x && this.cells[i].y == y) return i;
-		return - 1;
+		if (! this.grid.contains(x, y)) return - 1;
+		
+		return this.findSlot(this.cells, this.grid.getElement(x, y));
 		// if there is no such cell, returns - 1
 		
 	}
@@ -470,14 +629,29 @@ public class Game {
 		 *  x, y: coordinates
 		 */
 		
-		for (int i = 0; i < this.smileys.length; i++)
-			if (this.smileys[i] == null) continue;
-			else if (this.smileys[i].x == x && this.smileys[i].y == y) return i;
-		return - 1;
+		if (! this.grid.contains(x, y)) return - 1; // look up getCorrespondingCell
+		
+		return this.findSlot(this.smileys, this.grid.getElement(x, y));
 		// if there is no such smiley, returns - 1
 		
 	}
 	
+	private int findSlot(Cell[] src, Cell elt) {
+		/*
+		 * Returns the index of elt in src, or - 1 if it isn't stored there.
+		 * In:
+		 *  src: this.cells or this.smileys
+		 *  elt: element (can be null)
+		 */
+		
+		if (src == null || elt == null) return - 1;
+		int p = elt.getSlot();
+		if (p < 0 || p >= src.length || src[p] != elt) return - 1;
+		
+		return p;
+		
+	}
+	
 	public void custom(int[][] elts) {
 		/*
 		 * Creates the grid from the given elements. elts can have any length but the arrays inside must be
@@ -491,9 +665,10 @@ public class Game {
 		this.reset();
 		
 		this.smileys = new Smiley[elts.length];
+		this.smileySlots.reset(elts.length);
 		this.smileysLeft = elts.length;
 		for (int i = 0; i < elts.length; i++)
-			this.smileys[i] = new Smiley(this.grid, elts[i][0], elts[i][1], elts[i][2]);
+			this.addSmiley(this.grid.entities.newSmiley(elts[i][0], elts[i][1], elts[i][2]));
 			// the constructor of the smileys automatically changes the grid
 		
 	}
@@ -510,8 +685,10 @@ public class Game {
 		
 		this.reset();
 		this.eh.reset();
-		this.can.reset();
-		this.can.setButtonStates("game");
+		if (this.can != null) {
+			this.can.reset();
+			this.can.setButtonStates("game");
+		}
 		
 		this.level = lvl;
 		
@@ -527,6 +704,7 @@ public class Game {
 		this.deletingCells = false;
 		
 		this.smileys = new Smiley[nb];
+		this.smileySlots.reset(nb);
 		this.smileysLeft = nb;
 		
 		this.loopNewSmiley(0, nb);
@@ -555,19 +733,20 @@ public class Game {
 		 *  nMax: the loop's end
 		 */
 		
-		// find a set of coordinates that isn't occupied yet
-		int[] pos = this.randomPos();
-		while (this.grid.g[pos[0]][pos[1]] != 0)
-			pos = this.randomPos();
-		// create the smiley
-		this.smileys[n] = new Smiley(this.grid, pos[0], pos[1], this.rnd.nextInt(this.colMax) + 2);
+		this.newSmiley();
 		
 		// refresh the interface
 		this.userDisplay();
 		
-		if (n < nMax - 1)
-			this.timer.schedule(new GenerationTask(this, n + 1, nMax), this.genDelay);
-		else {
+		boolean atOnce = ! this.timed || this.fastForward;
+		if (n < nMax - 1) {
+			if (! atOnce)
+				this.getLoop().schedule(new GenerationTask(this, n + 1, nMax), this.genDelay);
+			else
+				// without the timer (or in fast-forward), the smileys all appear at once
+				for (int i = n + 1; i < nMax; i++) this.newSmiley();
+		}
+		if (n == nMax - 1 || atOnce) {
 			this.onGoing = true;
 			this.starting = false;
 			this.pausing = true;
@@ -575,12 +754,24 @@ public class Game {
 			this.lost = false;
 			this.downOn = false;
 			this.userDisplay();
-			// this.loopExecute(true);
-			// this.timer.schedule(new GameTask(this), this.delay);
 		}
 		
 	}
 	
+	private void newSmiley() {
+		/*
+		 * Creates a smiley on a random case that isn't occupied yet.
+		 */
+		
+		// find a set of coordinates that isn't occupied yet
+		int[] pos = this.randomPos();
+		while (this.grid.get(pos[0], pos[1]) != 0)
+			pos = this.randomPos();
+		// create the smiley
+		this.addSmiley(this.grid.entities.newSmiley(pos[0], pos[1], this.genRnd.nextInt(this.colMax) + 2));
+		
+	}
+	
 	public int numberSmileys(int n) {
 		/*
 		 * Returns the number of smileys to generate at level n.
@@ -620,38 +811,81 @@ public class Game {
 		 *  dead: array of two-element arrays with x and y coordinates
 		 */
 		
+		if (dead.length == 0) return;
+		
+		int c = this.prepareLastDeaths(dead.length);
+		
+		for (int[] i: dead)
+			c = this.deleteElement(i[0], i[1], c);
+		
+	}
+	
+	public void deleteElements(int[] dead, int n) {
+		/*
+		 * Delete all of the cell and smiley elements given by coordinates in dead, without needing an array
+		 * per coordinate (used with the result of Grid.scan).
+		 * In:
+		 *  dead: x and y coordinates following each other: {x0, y0, x1, y1, ...}
+		 *  n: number of coordinates to read in dead
+		 */
+		
+		if (n == 0) return;
+		
+		int c = this.prepareLastDeaths(n);
+		
+		for (int i = 0; i < n; i++)
+			c = this.deleteElement(dead[2 * i], dead[2 * i + 1], c);
+		
+	}
+	
+	private int prepareLastDeaths(int n) {
+		/*
+		 * Makes room for n new elements in this.lastDeaths. Returns the index of the last element before them.
+		 * In:
+		 *  n: number of elements that are going to be deleted
+		 */
+		
 		int c = - 1;
 		
-		// unoptimal
-		int[][] temp = new int[dead.length][4];
 		if (this.lastDeaths == null)
-			this.lastDeaths = temp;
+			this.lastDeaths = new int[n][4];
 		else {
-			c = this.lastDeaths.length;
-			this.lastDeaths = this.fuse(this.lastDeaths, temp);
+			c = this.lastDeaths.length - 1;
+			this.lastDeaths = Arrays.copyOf(this.lastDeaths, c + 1 + n);
+			for (int i = c + 1; i < this.lastDeaths.length; i++) this.lastDeaths[i] = new int[4];
 		}
-
-		int cor;
-		for (int[] i: dead) {
-			c += 1;
-			cor = this.getCorrespondingSmiley(i[0], i[1]);
-			// returns - 1 if it isn't a smiley
-			if (cor == - 1) {
-				cor = this.getCorrespondingCell(i[0], i[1]);
-				if (cor == - 1) c -= 1; // either an error or the cell was already deleted
-				else {
-					this.lastDeaths[c] = new int[] {i[0], i[1], this.cells[cor].color, 0};
-					this.cells[cor].kill();
-					this.cells[cor] = null;
-				}
-			} else {
-				this.score += 1; this.smileysLeft -= 1;
-				this.lastDeaths[c] = new int[] {i[0], i[1], this.smileys[cor].color, 1};
-				this.smileys[cor].kill();
-				this.smileys[cor] = null;
+		
+		return c;
+		
+	}
+	
+	private int deleteElement(int x, int y, int c) {
+		/*
+		 * Deletes the cell or the smiley at (x, y) and remembers it in this.lastDeaths. Returns the index of
+		 * the last element written in this.lastDeaths.
+		 * In:
+		 *  x, y: coordinates
+		 *  c: index of the last element written in this.lastDeaths
+		 */
+		
+		c += 1;
+		int cor = this.getCorrespondingSmiley(x, y);
+		// returns - 1 if it isn't a smiley
+		if (cor == - 1) {
+			cor = this.getCorrespondingCell(x, y);
+			if (cor == - 1) c -= 1; // either an error or the cell was already deleted
+			else {
+				this.lastDeaths[c] = new int[] {x, y, this.cells[cor].getColor(), 0};
+				this.removeCell(cor);
 			}
+		} else {
+			this.score += 1; this.smileysLeft -= 1;
+			this.lastDeaths[c] = new int[] {x, y, this.smileys[cor].getColor(), 1};
+			this.removeSmiley(cor);
 		}
 		
+		return c;
+		
 	}
 	
 	private int[] randomPos() {
@@ -662,8 +896,8 @@ public class Game {
 		 */
 		
 		return new int[] {
-				this.rnd.nextInt(this.grid.width),
-				this.rnd.nextInt(this.grid.height - this.gdMin) + this.gdMin
+				this.genRnd.nextInt(this.grid.width),
+				this.genRnd.nextInt(this.grid.height - this.gdMin) + this.gdMin
 		};
 		
 	}
@@ -674,16 +908,18 @@ public class Game {
 		 */
 		
 		this.smileys = null;
+		this.smileySlots.reset(0);
 		this.cells = new Cell[this.grid.width * this.grid.height];
+		this.cellSlots.reset(this.cells.length);
 		this.grid.reset();
 		
 		this.speeder = 1;
 		
-		this.canFall = new boolean[this.cells.length];
+		this.grav.reset();
 		
 		this.curCap = null;
-		this.upComingC0 = this.rnd.nextInt(this.colMax) + 2;
-		this.upComingC1 = this.rnd.nextInt(this.colMax) + 2;
+		this.upComingC0 = this.capRnd.nextInt(this.colMax) + 2;
+		this.upComingC1 = this.capRnd.nextInt(this.colMax) + 2;
 		this.nextCapX = this.grid.width / 2 - 1; // middle
 		this.nextCapY = 0;                       // top
 		
@@ -707,21 +943,21 @@ public class Game {
 		if (this.generating && this.pausing) {
 			this.generating = false;
 			this.pausing = false;
-			this.loopExecute();
+			if (this.timed) this.getLoop().resume(0);
 			return false;
 		}
 		
 		if (event == 27)
 			if (! (this.starting || this.lost || this.generating)) {
-				this.latestGT.cancel();
+				if (this.loop != null) this.loop.pause();
 				this.onGoing = ! this.onGoing;
 				this.pausing = ! this.pausing;
 				this.userDisplay();
 				if (this.onGoing) {
-					this.can.setButtonStates("game");
-					this.loopExecute(true);
+					if (this.can != null) this.can.setButtonStates("game");
+					if (this.timed) this.getLoop().resume(this.delay);
 				}
-				else this.can.setButtonStates("pause");
+				else if (this.can != null) this.can.setButtonStates("pause");
 				return false;
 			}
 		
@@ -760,8 +996,8 @@ public class Game {
 			break;
 		case 1:
 			this.downOn = true;
-			this.latestGT.cancel();
-			this.loopExecute();
+			// the next frame happens right away (without the timer, it is the next one asked for)
+			if (this.timed) this.getLoop().now();
 			break;
 		case 2:
 			this.curCap.move(0);
@@ -771,6 +1007,8 @@ public class Game {
 			break;
 		}
 		
+		if (this.recorder != null) this.recorder.input(this.playFrames, event);
+		
 		this.userDisplay();
 		
 		return true;
@@ -792,10 +1030,9 @@ public class Game {
 		this.onGoing = false;
 		switch (this.mode) {
 		case "canvas":
-			this.can.stop();
+			if (this.can != null) this.can.stop();
 			break;
 		}
-		System.exit(0);
 		
 	}
 	
@@ -816,6 +1053,10 @@ public class Game {
 			
 			this.starting = false;
 			this.onGoing = true;
+			this.reseed(this.nbPlays == 0? this.seed : this.seeds.nextLong());
+			this.nbPlays += 1;
+			this.playFrames = 0;
+			if (this.recorder != null) this.recorder.begin(this);
 			this.init(this.level);
 			break;
 			
@@ -902,21 +1143,91 @@ public class Game {
 	
 	public void stopTimer() {
 		
-		this.timer.cancel();
+		if (this.loop != null) this.loop.stop();
 		
 	}
 	
-	public void setCanvas(Canvas can) {
+	public void setCanvas(Display can) {
 		/*
 		 * Sets the canvas attribute.
 		 * In:
-		 *  can: canvas
+		 *  can: canvas (or any other display)
 		 */
 		
 		this.can = can;
 		
 	}
 	
+	public void setLoop(GameLoop loop) {
+		/*
+		 * Sets the loop that runs the game's frames, instead of one with its own thread.
+		 * In:
+		 *  loop: loop made for this game (look up SessionHost)
+		 */
+		
+		this.loop = loop;
+		
+	}
+	
+	public void reseed(long s) {
+		/*
+		 * Splits the streams of randomness again from a seed.
+		 * In:
+		 *  s: seed
+		 */
+		
+		this.playSeed = s;
+		Rng root = new Rng(s);
+		this.genRnd = root.split();
+		this.capRnd = root.split();
+		this.evtRnd = root.split();
+		
+	}
+	
+	public void setFastForward(boolean fastForward) {
+		/*
+		 * Sets the fast-forward mode. In fast-forward:
+		 * - the frames run one after the other without waiting for their delay (look up GameLoop)
+		 * - the smileys of a level all appear at once
+		 * - the cells fall and the lines are deleted in the frame after a capsule lands, instead of one frame
+		 *   per case and one more to show the deleted cells
+		 * As the next level is generated inside the frame that clears the last smiley, a frame can leave the
+		 * game waiting for a key: the loop stops running frames after it (look up GameLoop.stopped).
+		 * The game itself doesn't change: the same seed and the same inputs on the capsules give the same game,
+		 * only in less frames.
+		 * In:
+		 *  fastForward: true to ignore the delays
+		 */
+		
+		this.fastForward = fastForward;
+		
+	}
+	
+	public void setTimed(boolean timed) {
+		/*
+		 * Sets if the game schedules its own frames. When it doesn't, nothing happens unless frame is called
+		 * (look up GameEngine).
+		 * In:
+		 *  timed: true for the game in the window
+		 */
+		
+		this.timed = timed;
+		
+	}
+	
+	public void play(int lvl) {
+		/*
+		 * Starts the game at a level, like the start button of the menu.
+		 * In:
+		 *  lvl: level
+		 */
+		
+		this.level = lvl;
+		this.score = this.countScore(lvl);
+		this.buttonPressed(0);
+		
+	}
+	
 	public void setEventHandler(EventHandler eh) {
 		/*
 		 * Sets the event handler attribute.
@@ -938,7 +1249,7 @@ public class Game {
 			this.grid.consoleDisplay();
 			break;
 		case "canvas":
-			this.can.repaint();
+			if (this.can != null) this.can.repaint();
 			break;
 		}
 		
@@ -975,12 +1286,10 @@ public class Game {
 			p = this.getCorrespondingSmiley(x, y);
 			if (p == - 1) return false;
 			this.score += 1; this.smileysLeft -= 1;
-			this.smileys[p].kill();
-			this.smileys[p] = null;
+			this.removeSmiley(p);
 			return true;
 		}
-		this.cells[p].kill();
-		this.cells[p] = null;
+		this.removeCell(p);
 		return true;
 		
 	}
@@ -0,0 +1,105 @@
+/*
+ * Runs a game without a window and without a timer: nothing happens until step is called, and every call
+ * runs exactly one frame. Used to drive the game from tests, bots or batch jobs as fast as the CPU allows.
+ * 
+ * Example:
+ *  GameEngine engine = new GameEngine(new Grid(8, 19));
+ *  engine.start(0);
+ *  while (engine.step(0).onGoing) ...
+ * 
+ * The inputs are the key codes read by Game.action (0 for no input). A level that was just generated
+ * starts right away instead of waiting for a key.
+ * A display can still be given to the game (Game.setCanvas) to watch it, but it isn't needed.
+ * With the same seed and the same inputs, two engines play exactly the same game.
+ */
+
+package game;
+
+import java.util.SplittableRandom;
+
+public class GameEngine {
+	
+	public final Game game;
+	public final EventHandler eh;
+	
+	final StepResult result; // given back at every step
+	
+	public GameEngine(Grid grid) {
+		
+		// random seed
+		this(grid, new SplittableRandom().nextLong());
+		
+	}
+	
+	public GameEngine(Grid grid, long seed) {
+		
+		this.game = new Game(grid, seed);
+		this.game.setTimed(false);
+		
+		this.eh = new EventHandler(this.game);
+		this.game.setEventHandler(this.eh);
+		
+		this.result = new StepResult();
+		
+	}
+	
+	public void setFastForward(boolean fastForward) {
+		/*
+		 * Makes every step skip the frames that are only there for the visuals (look up
+		 * Game.setFastForward).
+		 * In:
+		 *  fastForward: true to skip them
+		 */
+		
+		this.game.setFastForward(fastForward);
+		
+	}
+	
+	public void start(int level) {
+		/*
+		 * Starts a game at a level, with every smiley generated at once.
+		 * In:
+		 *  level: level
+		 */
+		
+		this.game.play(level);
+		this.result.frame = 0;
+		
+	}
+	
+	public StepResult step(int input) {
+		/*
+		 * Runs one frame of the game, after applying an input. Returns what happened during the frame.
+		 * In:
+		 *  input: key code (look up Game.action), 0 for no input
+		 */
+		
+		Game g = this.game;
+		int kills = g.kills, capsules = g.capsules, level = g.level;
+		
+		// in the window, the player presses a key to start a level that was just generated
+		if (g.generating && g.pausing) g.action(0);
+		
+		if (input != 0) g.action(input);
+		
+		int d = 0;
+		if (g.onGoing) d = g.frame();
+		g.timeSpent += d; // without a clock, the time of a frame is its delay
+		
+		StepResult r = this.result;
+		r.frame += 1;
+		r.delay = d;
+		r.landed = g.capsules != capsules;
+		r.kills = g.kills - kills;
+		r.cleared = g.level != level;
+		r.lost = g.lost;
+		r.onGoing = g.onGoing && ! g.lost;
+		r.level = g.level;
+		r.score = g.score;
+		r.smileysLeft = g.smileysLeft;
+		
+		return r;
+		
+	}
+
+}
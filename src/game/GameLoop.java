@@ -0,0 +1,310 @@
+/*
+ * Runs the frames of a game in the window, on one thread that lives as long as the game.
+ * 
+ * The loop ticks every step (a fixed logical timestep, a few milliseconds) on a ScheduledExecutorService.
+ * Every tick adds the time really spent since the last one (System.nanoTime) to an accumulator, then eats
+ * it step by step: each step brings the next frame of the game closer, and when its delay (returned by
+ * Game.frame) is over, the frame is run. So if a tick comes late, the steps it missed are caught up at
+ * once, and the frames stay on their schedule instead of drifting.
+ * After a long stall (the computer was asleep, ...), at most maxCatchUp steps are caught up and the rest is
+ * dropped, so the game doesn't run a burst of frames.
+ * In fast-forward (look up Game.setFastForward), the delays are ignored: every tick runs frames one after
+ * the other for a whole step.
+ * 
+ * The ticks are cancelled while the frames don't run (menu, pause, end of the game, ...), so an idle game
+ * doesn't wake the computer every step, and they start again with the frames (look up resume).
+ * The other tasks of the game (the smileys' appearances) are run on the same thread (look up schedule).
+ * A frame or a task that throws is reported and stops the frames for good (look up failure), so a broken
+ * game stops visibly instead of its ticks dying silently.
+ * 
+ * A loop has its own thread, unless it is given a scheduler shared with other loops (look up SessionHost):
+ * the ticks of one loop never run at the same time, but two loops can tick on different threads.
+ * On a shared scheduler, the loop doesn't tick every step: each tick schedules the next one once, at the
+ * step where the next frame is due (look up arm). So the ticks of a host follow the frames it runs, not the
+ * number of games times the rate of the steps.
+ * 
+ * Libraries:
+ *  java.util.concurrent
+ */
+
+package game;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class GameLoop implements Runnable {
+	
+	final Game game;
+	final ScheduledExecutorService exec;
+	final boolean shared;       // is exec shared with other loops? (it isn't shut down with the loop then)
+	ScheduledFuture<?> ticking; // the next tick, or the repeated one (null while the frames don't run)
+	
+	public final long step;        // logical timestep, in nanoseconds
+	public final int maxCatchUp;   // number of steps caught up at most in one tick
+	
+	boolean running; // are the frames running? (false while the game is paused or generated)
+	long last;       // time of the last tick
+	long acc;        // time not turned into steps yet
+	long wait;       // time left before the next frame
+	long due;        // time the next tick is due
+	long skip;       // number of steps the next tick is due after the last one, minus one (0 every step)
+	
+	public long frames, // number of frames run
+				ticks,  // number of ticks
+				late;   // number of ticks that came more than a step late
+	public volatile RuntimeException failure; // exception thrown by the frame that stopped the loop (null if none)
+	
+	public GameLoop(Game game) {
+		
+		this.game = game;
+		this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "game-loop");
+			t.setDaemon(true);
+			return t;
+		});
+		this.shared = false;
+		
+		this.step = TimeUnit.MILLISECONDS.toNanos(5);
+		this.maxCatchUp = 50; // a quarter of a second
+		
+		this.running = false;
+		
+	}
+	
+	public GameLoop(Game game, ScheduledExecutorService exec, int stepMillis) {
+		/*
+		 * Loop that ticks on a scheduler shared with other loops.
+		 * In:
+		 *  game: game to run
+		 *  exec: scheduler
+		 *  stepMillis: logical timestep, in milliseconds
+		 */
+		
+		this.game = game;
+		this.exec = exec;
+		this.shared = true;
+		
+		this.step = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+		this.maxCatchUp = Math.max(1, 250 / stepMillis);
+		
+		this.running = false;
+		
+	}
+	
+	public synchronized void run() {
+		/*
+		 * Tick: turns the time spent since the last tick into steps and runs the frames that are due.
+		 */
+		
+		long now = System.nanoTime();
+		long elapsed = now - this.last;
+		this.last = now;
+		this.ticks += 1;
+		
+		if (! this.running) return;
+		
+		if (now - this.due > this.step) this.late += 1;
+		
+		// a frame that throws leaves the game half updated: the frames stop there, instead of the tick dying
+		// silently (a repeated task that throws is cancelled, and the next one-shot tick would never be armed)
+		try {
+			if (this.game.fastForward) this.fastForward(now);
+			else this.steps(elapsed);
+		} catch (RuntimeException e) {
+			this.failure = e;
+			System.err.println("game loop: a frame failed, the game is stopped");
+			e.printStackTrace();
+			this.halt();
+			return;
+		}
+		
+		this.arm(now);
+		
+	}
+	
+	private void steps(long elapsed) {
+		/*
+		 * Turns the time spent since the last tick into steps and runs the frames that are due.
+		 * In:
+		 *  elapsed: time spent since the last tick
+		 */
+		
+		this.game.timeSpent += elapsed / 1e6f;
+		this.acc += elapsed;
+		
+		int n = 0;
+		while (this.acc >= this.step && n < this.maxCatchUp + this.skip) {
+			this.acc -= this.step;
+			n += 1;
+			this.wait -= this.step;
+			if (this.wait > 0) continue;
+			
+			int d = this.game.frame();
+			this.frames += 1;
+			if (this.stopped()) {
+				this.halt();
+				break;
+			}
+			this.wait += TimeUnit.MILLISECONDS.toNanos(d);
+		}
+		
+		// dropping what couldn't be caught up
+		if (this.acc >= this.step) this.acc = 0;
+		
+	}
+	
+	private void fastForward(long now) {
+		/*
+		 * Runs frames without waiting until the next tick is due.
+		 * The time spent counts the delays of the frames, as if they were waited for.
+		 * In:
+		 *  now: time of the tick
+		 */
+		
+		long end = now + this.step;
+		do {
+			int d = this.game.frame();
+			this.frames += 1;
+			this.game.timeSpent += d;
+			if (this.stopped()) {
+				this.halt();
+				break;
+			}
+		} while (System.nanoTime() < end);
+		
+		this.acc = 0;
+		this.wait = 0;
+		
+	}
+	
+	private boolean stopped() {
+		/*
+		 * Returns if the frames must stop after the last one: the game is over or paused, or a level was just
+		 * generated and waits for a key (look up Game.action).
+		 * Checking onGoing alone isn't enough in fast-forward: the next level is generated at once, inside a
+		 * frame, and onGoing stays true while the game waits for the key (look up Game.setFastForward).
+		 */
+		
+		return ! this.game.onGoing || this.game.pausing;
+		
+	}
+	
+	private void arm(long now) {
+		/*
+		 * Schedules the next tick, if the frames are running: on the loop's own thread, the ticks repeat every
+		 * step; on a shared scheduler, the next tick is scheduled once, at the step where the next frame is due
+		 * (at once in fast-forward).
+		 * In:
+		 *  now: current time
+		 */
+		
+		if (! this.running) return;
+		
+		if (! this.shared) {
+			if (this.ticking == null)
+				this.ticking = this.exec.scheduleAtFixedRate(this, this.step, this.step, TimeUnit.NANOSECONDS);
+			this.due = now + this.step;
+			this.skip = 0;
+			return;
+		}
+		
+		long steps = 1, d = 0;
+		if (! this.game.fastForward) {
+			steps = Math.max(1, (this.wait + this.step - 1) / this.step);
+			d = Math.max(0, steps * this.step - this.acc - (now - this.last));
+		}
+		this.skip = steps - 1; // they aren't caught up, so they don't count in maxCatchUp
+		
+		if (this.ticking != null) this.ticking.cancel(false);
+		this.ticking = this.exec.schedule(this, d, TimeUnit.NANOSECONDS);
+		this.due = now + d;
+		
+	}
+	
+	private void halt() {
+		/*
+		 * Stops running frames and cancels the ticks.
+		 */
+		
+		this.running = false;
+		if (this.ticking != null) {
+			this.ticking.cancel(false);
+			this.ticking = null;
+		}
+		
+	}
+	
+	public synchronized void resume(int d) {
+		/*
+		 * Makes the frames run again, the next one in d milliseconds (0 for the next tick).
+		 * Starts the ticks again (and the thread the first time). Does nothing after a frame failed.
+		 * In:
+		 *  d: delay before the next frame
+		 */
+		
+		if (this.failure != null) return;
+		
+		this.last = System.nanoTime();
+		this.acc = 0;
+		this.wait = TimeUnit.MILLISECONDS.toNanos(d);
+		this.running = true;
+		
+		this.arm(this.last);
+		
+	}
+	
+	public synchronized void now() {
+		/*
+		 * Makes the next frame happen on the next tick, if the frames are running.
+		 */
+		
+		this.wait = 0;
+		this.arm(System.nanoTime());
+		
+	}
+	
+	public synchronized void pause() {
+		/*
+		 * Stops running frames until resume is called. The ticks are cancelled meanwhile.
+		 */
+		
+		this.halt();
+		
+	}
+	
+	public void schedule(Runnable task, int d) {
+		/*
+		 * Runs task once after d milliseconds, on the loop's thread, never at the same time as a tick.
+		 * In:
+		 *  task: task to run
+		 *  d: delay
+		 */
+		
+		this.exec.schedule(() -> {
+			synchronized (this) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					this.failure = e;
+					System.err.println("game loop: a task failed, the game is stopped");
+					e.printStackTrace();
+					this.halt();
+				}
+			}
+		}, d, TimeUnit.MILLISECONDS);
+		
+	}
+	
+	public synchronized void stop() {
+		/*
+		 * Stops the loop for good (and its thread, if it isn't shared).
+		 */
+		
+		this.halt();
+		if (! this.shared) this.exec.shutdownNow();
+		
+	}
+
+}
@@ -1,15 +1,11 @@
 /*
  * Object used during the level generation, to space out the smiley's appearances.
- * 
- * Libraries:
- *  java.util
+ * Ran by the game's loop (look up GameLoop.schedule).
  */
 
 package game;
 
-import java.util.TimerTask;
-
-public class GenerationTask extends TimerTask {
+public class GenerationTask implements Runnable {
 	
 	final Game game;
 	final int n, nMax;
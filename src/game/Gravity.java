@@ -0,0 +1,204 @@
+/*
+ * Makes the cells fall after some of them were deleted.
+ * The final position of every cell is computed at once, in one sweep from the bottom of the grid to the top
+ * (look up prepare). The cells can then be moved one case per frame for the visuals (step) or straight to
+ * their final position (apply).
+ * 
+ * A falling unit is either:
+ * - a cell that isn't fused
+ * - two fused cells next to each other: they fall as far as the shortest fall of the two
+ * - two fused cells on top of each other: they fall as far as the bottom one can
+ * Smileys and stones never fall.
+ * 
+ * Since a cell can't go through another, a unit can only land on something that was already under it. So
+ * when the units are read from the bottom row to the top one, everything under a unit has already landed.
+ */
+
+package game;
+
+import elements.Cell;
+
+public class Gravity {
+	
+	final Game game;
+	final Grid grid;
+	
+	byte[] occ; // copy of the grid where the units are moved to their final position during prepare
+	
+	Cell[] order;   // units sorted from the bottom row to the top one (only the lowest/leftest cell of each)
+	int[] rowStart; // rowStart[y]: index of the first unit of the row y in order, while sorting
+	
+	// moves computed by prepare, bottom cells first
+	Cell[] moving;
+	int[] left;      // left[i]: number of cases moving[i] still has to fall
+	int nbMoves;     // number of cells in moving
+	public int nbLeft; // number of cells that haven't reached their final position yet
+	
+	public Gravity(Game game) {
+		
+		this.game = game;
+		this.grid = game.grid;
+		
+		int size = this.grid.width * this.grid.height;
+		this.occ = new byte[size];
+		this.order = new Cell[size];
+		this.rowStart = new int[this.grid.height + 1];
+		this.moving = new Cell[size];
+		this.left = new int[size];
+		
+		this.nbMoves = 0;
+		this.nbLeft = 0;
+		
+	}
+	
+	public int prepare() {
+		/*
+		 * Computes where every cell of game.cells is going to land. Nothing moves on the grid yet.
+		 * Returns the number of cells that are going to fall.
+		 */
+		
+		this.nbMoves = 0;
+		this.nbLeft = 0;
+		
+		int h = this.grid.height;
+		System.arraycopy(this.grid.cases, 0, this.occ, 0, this.occ.length);
+		
+		// sorting the units by row with a counting sort (only the used spots of game.cells are read)
+		Slots slots = this.game.cellSlots;
+		Cell c, cf;
+		for (int y = 0; y <= h; y++) this.rowStart[y] = 0;
+		for (int i = 0; i < slots.nbLive; i++) {
+			c = this.game.cells[slots.live[i]];
+			if (this.isUnit(c)) this.rowStart[h - 1 - c.getY() + 1] += 1;
+		}
+		for (int y = 1; y <= h; y++) this.rowStart[y] += this.rowStart[y - 1];
+		int nbUnits = this.rowStart[h];
+		for (int i = 0; i < slots.nbLive; i++) {
+			c = this.game.cells[slots.live[i]];
+			if (this.isUnit(c)) {
+				this.order[this.rowStart[h - 1 - c.getY()]] = c;
+				this.rowStart[h - 1 - c.getY()] += 1;
+			}
+		}
+		
+		// landing each unit, from the bottom
+		int d;
+		for (int i = 0; i < nbUnits; i++) {
+			
+			c = this.order[i];
+			this.order[i] = null;
+			cf = c.isFused()? c.getCf() : null;
+			
+			d = this.depth(c.getX(), c.getY());
+			if (cf != null && c.isHori()) d = Math.min(d, this.depth(cf.getX(), cf.getY()));
+			if (d == 0) continue;
+			
+			this.move(c, d);
+			if (cf != null) this.move(cf, d);
+			
+		}
+		
+		return this.nbMoves;
+		
+	}
+	
+	private boolean isUnit(Cell c) {
+		/*
+		 * Returns if c is the cell that represents its unit: a cell that isn't fused, the left cell of a
+		 * horizontal pair or the bottom cell of a vertical one.
+		 * In:
+		 *  c: cell (can be null)
+		 */
+		
+		if (c == null) return false;
+		if (! c.isFused()) return true;
+		
+		return c.isHori() == c.isTl();
+		
+	}
+	
+	private int depth(int x, int y) {
+		/*
+		 * Returns the number of empty cases under (x, y) in this.occ.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		int i = x * this.grid.height + y;
+		int end = (x + 1) * this.grid.height - 1;
+		int d = 0;
+		while (i + d < end && this.occ[i + d + 1] == 0) d += 1;
+		
+		return d;
+		
+	}
+	
+	private void move(Cell c, int d) {
+		/*
+		 * Moves c by d cases down in this.occ and remembers the move.
+		 * In:
+		 *  c: cell
+		 *  d: number of cases
+		 */
+		
+		int i = c.getX() * this.grid.height + c.getY();
+		this.occ[i] = 0;
+		this.occ[i + d] = (byte) c.getColor();
+		
+		this.moving[this.nbMoves] = c;
+		this.left[this.nbMoves] = d;
+		this.nbMoves += 1;
+		this.nbLeft += 1;
+		
+	}
+	
+	public boolean isMoving() {
+		/*
+		 * Returns if some cells haven't reached the position computed by prepare yet.
+		 */
+		
+		return this.nbLeft > 0;
+		
+	}
+	
+	public void step() {
+		/*
+		 * Makes every cell that hasn't reached its final position fall by one case.
+		 * The bottom cells move first, so the case under a cell is always free when it moves.
+		 */
+		
+		for (int i = 0; i < this.nbMoves; i++) {
+			if (this.left[i] == 0) continue;
+			this.moving[i].fall(true);
+			this.left[i] -= 1;
+			if (this.left[i] == 0) this.nbLeft -= 1;
+		}
+		
+	}
+	
+	public void apply() {
+		/*
+		 * Moves every cell straight to its final position.
+		 */
+		
+		for (int i = 0; i < this.nbMoves; i++) {
+			if (this.left[i] == 0) continue;
+			this.moving[i].drop(this.left[i]);
+			this.left[i] = 0;
+		}
+		this.nbLeft = 0;
+		
+	}
+	
+	public void reset() {
+		/*
+		 * Forgets the moves computed by prepare.
+		 */
+		
+		for (int i = 0; i < this.nbMoves; i++) this.moving[i] = null;
+		this.nbMoves = 0;
+		this.nbLeft = 0;
+		
+	}
+
+}
@@ -1,11 +1,24 @@
 /*
  * Two-dimensions array that represents the current game state.
- * Used as follows: Grid.g[x][y] (first coordinate is x, second is y).
+ * Used as follows: Grid.get(x, y) and Grid.set(x, y, element) (first coordinate is x, second is y).
  * Also contains functions to analyze the board.
  * 
+ * Every element fits in a byte, so the cases are all stored in one byte array, column after column:
+ *  cases[x * height + y] is the case (x, y)
+ * A column is read without jumping around in memory and the whole grid is copied at once.
+ * 
  * The program holds in the same time a grid with just numbers for each case (this object) and an array of
  * every cell (and one of every smiley). Every time a cell moves or is killed, this object gets updated.
- * However this doesn't keep track of whether a case contains a cell or a smiley.
+ * The grid also keeps the element object (cell, smiley or stone) of each case, in the same order as the
+ * numbers, so an element is found from its coordinates without searching through those arrays (look up
+ * getElement). The capsule that is falling isn't an element and isn't kept there.
+ * 
+ * Every case that changes is also marked as dirty until the display takes it (look up takeDirty), so the
+ * canvas only draws again the cases that changed since its last drawing.
+ * 
+ * Each column also has one bit per row telling if the case is filled (look up firstBelow), so the highest
+ * filled case of a column, or the first one under a given case, is found without reading the column.
+ * This is only kept when the grid is at most 64 cases high; otherwise the column is read.
  * 
  * Elements:
  *  0: empty
@@ -18,18 +31,66 @@
  *  7: joker
  *  8: bomb
  *  9: blocker (red guy)
+ * 
+ * Libraries:
+ *  java.util
  */
 
 package game;
 
+import java.util.Arrays;
+
+import elements.Cell;
+import elements.Entities;
+
 public class Grid {
 
-	public int[][] g;
+	byte[] cases;
+	Cell[] elements; // elements[x * height + y]: cell, smiley or stone in the case (x, y), null if there is none
+	boolean[] dirty; // dirty[x * height + y]: has the case changed since the display last took it?
+	public final Entities entities; // store of every cell, smiley and stone (look up Entities)
 	public int width, height;
 	
+	// detection
+	public int[] hits;  // coordinates of the cells to kill found by the last scan: {x0, y0, x1, y1, ...}
+	public int nbHits;  // number of coordinates in hits
+	int remCol, count;  // state of the scan (look up scanLine)
+	boolean joker;
+	
+	/*
+	 * changes since the last detection
+	 * every time a case changes, the four lines that go through it are remembered so the next detection
+	 * only reads those
+	 */
+	boolean[][] changed; // changed[dir][line]: is the line going to be read by the next detection?
+	int[][] changes;     // changes[dir]: lines to read, in the order they changed
+	int[] nbChanges;     // number of lines to read in each direction
+	int lastAlignLength; // alignLength of the last detection (if it changes, every line must be read)
+	
+	public static final int maxColumnHeight = 64;
+	long[] columns; // columns[x]: bit y is set if the case (x, y) isn't empty (null if the grid is too high)
+	
 	public Grid(int width, int height) {
 		
 		this.width = width; this.height = height;
+		
+		this.hits = new int[this.width * this.height * 2];
+		this.nbHits = 0;
+		
+		int[] nbLines = new int[] {this.width, this.height, this.width + this.height - 1, this.width + this.height - 1};
+		this.changed = new boolean[4][];
+		this.changes = new int[4][];
+		for (int dir = 0; dir < 4; dir++) {
+			this.changed[dir] = new boolean[nbLines[dir]];
+			this.changes[dir] = new int[nbLines[dir]];
+		}
+		this.nbChanges = new int[4];
+		this.lastAlignLength = 0;
+		
+		this.columns = this.height <= Grid.maxColumnHeight? new long[this.width] : null;
+		
+		this.entities = new Entities(this);
+		
 		this.reset();
 		
 	}
@@ -37,230 +98,311 @@ public class Grid {
 	public int[][] detect(int alignLength) {
 		/*
 		 * Returns an array of every coordinate of cells and smileys to kill.
+		 * Works like scan but copies the result in a new array; scan should be used when the result is only
+		 * read once.
+		 * In:
+		 *  alignLength: number of cells to align to detect a line
 		 */
 		
-		int[][] fin, vert, hori, dia1, dia2;
+		int n = this.scan(alignLength);
+		
+		int[][] dead = new int[n][2];
+		for (int i = 0; i < n; i++) {
+			dead[i][0] = this.hits[2 * i];
+			dead[i][1] = this.hits[2 * i + 1];
+		}
+		
+		return dead;
+		
+	}
+	
+	public int scan(int alignLength) {
 		/*
-		 * fin: combination of other arrays
-		 * vert: every cell detected vertically
-		 * hori: every cell detected horizontally
-		 * dia1: every cell detected in a certain type of diagonals
-		 * dia2: every cell detected in the other type of diagonals
+		 * Detects every alignment and puts the coordinates of the cells and smileys to kill in this.hits.
+		 * Returns the number of coordinates found.
+		 * Each direction is read directly on the grid, in one pass, without copying it:
+		 *  0: vertical lines (one per column)
+		 *  1: horizontal lines (one per row)
+		 *  2: diagonals going down to the left
+		 *  3: diagonals going down to the right
+		 * this.hits is kept from one call to the other and only grows when an alignment doesn't fit in it.
+		 * In:
+		 *  alignLength: number of cells to align to detect a line
 		 */
 		
-		vert = this.detect(this.g, alignLength);
+		this.nbHits = 0;
+		this.clearChanges();
+		this.lastAlignLength = alignLength;
 		
-		hori = this.detect(this.reverse(), alignLength);
-		// adapt the coordinates
-		int s;
-		for (int i = 0; i < hori.length; i++) {
-			s = hori[i][0];
-			hori[i][0] = hori[i][1];
-			hori[i][1] = s;
-		}
+		for (int x = 0; x < this.width; x++)
+			this.scanLine(0, x, alignLength);
+		for (int y = 0; y < this.height; y++)
+			this.scanLine(1, y, alignLength);
+		for (int d = 0; d < this.width + this.height - 1; d++)
+			this.scanLine(2, d, alignLength);
+		for (int d = 0; d < this.width + this.height - 1; d++)
+			this.scanLine(3, d, alignLength);
+		
+		return this.nbHits;
+		
+	}
+	
+	public int scanChanges(int alignLength) {
+		/*
+		 * Works like scan but only reads the lines that went through a case that changed since the last
+		 * detection (look up touch). Returns the number of coordinates found.
+		 * An alignment can only appear on a line where something changed, so the result is the same as scan's
+		 * as long as every change was given to touch and the alignments found last time were deleted.
+		 * If alignLength isn't the same as last time, every line is read.
+		 * In:
+		 *  alignLength: number of cells to align to detect a line
+		 */
+		
+		if (alignLength != this.lastAlignLength)
+			return this.scan(alignLength);
 		
-		dia1 = this.detect(this.shift(0, 1), alignLength);
-		// adapt the coordinates
-		for (int i = 0; i < dia1.length; i++)
-			dia1[i][0] -= dia1[i][1];
+		this.nbHits = 0;
 		
-		dia2 = this.detect(this.shift(this.height - 1, - 1), alignLength);
-		// adapt the coordinates
-		for (int i = 0; i < dia2.length; i++)
-			dia2[i][0] -= this.height - dia2[i][1] - 1;
+		for (int dir = 0; dir < 4; dir++)
+			for (int i = 0; i < this.nbChanges[dir]; i++)
+				this.scanLine(dir, this.changes[dir][i], alignLength);
 		
-		// combine everything
-		fin = new int[vert.length + hori.length + dia1.length + dia2.length][2];
-		for (int i = 0; i < vert.length; i++) fin[i]                                           = vert[i];
-		for (int i = 0; i < hori.length; i++) fin[vert.length + i]                             = hori[i];
-		for (int i = 0; i < dia1.length; i++) fin[vert.length + hori.length + i]               = dia1[i];
-		for (int i = 0; i < dia2.length; i++) fin[vert.length + hori.length + dia1.length + i] = dia2[i];
+		this.clearChanges();
 		
-		return fin;
+		return this.nbHits;
 		
 	}
 	
-	private int[][] detect(int[][] grid, int alignLength) {
+	public void touch(int x, int y) {
 		/*
-		 * Detect alignments of a certain length in grid.
-		 * This doesn't consider horizontal and diagonal lines. This only detects lines in one array, for
-		 * example:
-		 *  { 0, 0, 3, 3, 2, 0, 0 }
-		 *  { 0, 0, 3, 4, 4, 4, 4 } <- the 4, 4, 4, 4 alignment is detected
-		 *  { 0, 2, 3, 2, 2, 3, 4 }
-		 *  { 2, 4, 3, 2, 3, 3, 3 }
-		 *          ^ the 3, 3, 3, 3 alignment isn't
+		 * Remembers that the case (x, y) changed, so that the next call to scanChanges reads the lines going
+		 * through it.
+		 * A joker at the end of a line also counts for the start of the next one, so the next line is
+		 * remembered too when the case is the last one of its line.
 		 * In:
-		 *  grid: grid to analyze
-		 *  alignLength: number of cells to align to detect a line
+		 *  x, y: coordinates of the case
 		 */
 		
-		// counting how many cells will die
-		int cTot = 0;
-		int[] res = new int[] {0, 0, 1};
-		while (res[2] != 0) {
-			res = this.detectLine(grid, res[0], res[1], alignLength);
-			cTot += res[2];
-		}
+		this.addChange(0, x);
+		this.addChange(1, y);
+		this.addChange(2, x + y);
+		this.addChange(3, x - y + this.height - 1);
 		
-		// creating an array of the locations of the cells that will die
-		int[][] dead = new int[cTot][2];
-		int lastInd = 0;
-		res = new int[] {0, 0, 1};
-		while (res[2] != 0) {
-			res = this.detectLine(grid, res[0], res[1], alignLength);
-			// get the entire line
-			for (int i = 0; i < res[2]; i++) {
-				dead[lastInd] = new int[] {res[0], res[1] - i};
-				lastInd += 1;
-			}
+		if (y == this.height - 1) {
+			this.addChange(0, x + 1);
+			this.addChange(2, x + y + 1);
+			this.addChange(3, x - y + this.height);
 		}
+		if (x == this.width - 1)
+			this.addChange(1, y + 1);
 		
-		return dead;
+	}
+	
+	private void addChange(int dir, int line) {
+		/*
+		 * Remembers a line to read at the next detection.
+		 * In:
+		 *  dir, line: line to remember
+		 */
+		
+		if (line >= this.changed[dir].length || this.changed[dir][line]) return;
+		
+		this.changed[dir][line] = true;
+		this.changes[dir][this.nbChanges[dir]] = line;
+		this.nbChanges[dir] += 1;
+		
+	}
+	
+	void clearChanges() {
+		/*
+		 * Forgets every line remembered by touch.
+		 */
 		
+		for (int dir = 0; dir < 4; dir++) {
+			for (int i = 0; i < this.nbChanges[dir]; i++)
+				this.changed[dir][this.changes[dir][i]] = false;
+			this.nbChanges[dir] = 0;
+		}
 		
 	}
 	
-	private int[] detectLine(int[][] grid, int iIni, int jIni, int alignLength) {
+	private void scanLine(int dir, int line, int alignLength) {
 		/*
-		 * Detects a line in grid. Returns the coordinates of the last cell and the length of the alignment,
-		 * like this: {x, y, length}.
-		 * It detects the first line with x >= iIni and y >= jIni and only returns one line. It is made to be
-		 * called many times in a row, detecting the first line in the first call, then the next line after
-		 * the first one (with iIni and jIni being the coordinates of the last cell of the first call) the
-		 * second call, until there is no line anymore.
+		 * Detects the alignments of one line and adds them to this.hits.
+		 * A line is read position by position. The scan remembers the last color it saw (this.remCol) and
+		 * how many times it appeared (this.count). When the color changes:
+		 * - if the counter is above alignLength, the cells of the alignment are added to this.hits
+		 * - the counter is reset to 1 and the remembered color is set to the new color
+		 * A joker (7) continues any alignment, and the cell that follows a joker starts with a counter of 2.
 		 * For example, on one line:
 		 *  0 0 3 2 2 2 2 4 4 3 4 4 4 4 4 2 3 2 2
-		 *  1st call    ^               ^
-		 *              |               | 2nd return: {x, 14, 5}
-		 *              | 1st return: {x, 6, 4}
-		 *                 2nd call: starts from (x, 6)
-		 * The function remembers the last color it saw (remCol) and how many times it appeared (c).
-		 * When the color changes:
-		 * - if the counter is above alignLength, the function returns the coordinates and the length
-		 * - otherwise, the counter is reset to 0 and the remembered color is set to the last color
+		 *        ^^^^^^^       ^^^^^^^^^ both alignments are found
+		 * Diagonals are read as if the grid had been shifted to make them vertical, with empty cases around
+		 * the grid:
+		 *  0 1 2     0 1 2 0 0
+		 *  3 4 5 --> 0 3 4 5 0
+		 *  6 7 8     0 0 6 7 8
+		 * Those empty cases are never read; only their effect on the scan is reproduced (see pad).
 		 * In:
-		 *  grid: grid to analyze
-		 *  iIni: x coordinate to start from
-		 *  jIni: y coordinate to start from
+		 *  dir: direction of the line (look up scan's documentation)
+		 *  line: index of the line in its direction
 		 *  alignLength: number of cells to align
 		 */
 		
-		int remCol = 0;
-		int c = 0;
-		boolean joker = false;
-		boolean prevJoker = false;
+		int len = dir == 1? this.width : this.height; // number of positions on the line
+		int first = 0, last = len - 1;                  // positions inside the grid
+		if (dir == 2) {
+			first = Math.max(0, line - this.width + 1);
+			last = Math.min(len - 1, line);
+		} else if (dir == 3) {
+			first = Math.max(0, this.height - 1 - line);
+			last = Math.min(len - 1, this.height - 2 - line + this.width);
+		}
+		
+		/*
+		 * a joker at the end of the previous line counts for the first cell of this one
+		 * (this is how the grid was always read: the lines of a direction are read as one long line)
+		 */
+		this.remCol = 0; this.count = 0;
+		this.joker = line > 0 && this.endsWithJoker(dir, line - 1);
+		
+		// empty cases before the grid
+		if (first >= 2) this.pad(dir, line, first - 2, alignLength);
+		if (first >= 1) this.pad(dir, line, first - 1, alignLength);
 		
-		for (int i = iIni; i < grid.length; i++) {
+		// cases of the grid
+		int v;
+		boolean prevJoker;
+		for (int p = first; p <= last; p++) {
 			
-			for (int j = 0; j < grid[0].length; j++) {
-				
-				if (i == iIni) if (j < jIni) continue;
-				
-				prevJoker = joker;
-				joker = grid[i][j] == 7;
-				
-				if (grid[i][j] >= 2 && (grid[i][j] == remCol || joker))
-					c += 1;
-				
-				else if (c >= alignLength)
-					return new int[] {i, j - 1, c};
-				
-				else {
-					remCol = grid[i][j]; c = 1;
-					if (prevJoker) c += 1;
-				}
-				
-			}
+			v = this.cases[this.lineX(dir, line, p) * this.height + this.lineY(dir, line, p)];
+			
+			prevJoker = this.joker;
+			this.joker = v == 7;
 			
-			if (c >= alignLength)
-				return new int[] {i, grid[0].length - 1, c};
+			if (v >= 2 && (v == this.remCol || this.joker))
+				this.count += 1;
 			
 			else {
-				remCol = 0; c = 0;
+				if (this.count >= alignLength) this.addAlignment(dir, line, p - 1);
+				this.remCol = v; this.count = 1;
+				if (prevJoker) this.count += 1;
 			}
 			
 		}
 		
-		if (c >= alignLength)
-			return new int[] {grid.length - 1, grid[0].length - 1, c};
+		// empty cases after the grid
+		if (last <= len - 2) this.pad(dir, line, last + 1, alignLength);
+		if (last <= len - 3) this.pad(dir, line, last + 2, alignLength);
 		
-		// if nothing was found, the function returns a length of 0 which is impossible
-		return new int[] {0, 0, 0};
+		// end of the line
+		if (this.count >= alignLength)
+			this.addAlignment(dir, line, len - 1);
 		
 	}
 	
-	private int[][] reverse(int[][] grid) {
+	private void pad(int dir, int line, int p, int alignLength) {
 		/*
-		 * Reverses grid, making the rows the columns and the columns the rows.
-		 * For example:
-		 *  0 1 2     0 3 6
-		 *  3 4 5 --> 1 4 7
-		 *  6 7 8     2 5 8
-		 *  In:
-		 *   grid: grid to reverse
+		 * Reads an empty case outside of the grid at the position p of a diagonal.
+		 * After two empty cases, reading more of them doesn't change the scan anymore so they are skipped.
+		 * In:
+		 *  dir, line: line being read
+		 *  p: position of the empty case
+		 *  alignLength: number of cells to align
 		 */
 		
-		int[][] rev = new int[this.height][this.width];
+		boolean prevJoker = this.joker;
+		this.joker = false;
 		
-		for (int i = 0; i < this.height; i++)
-			for (int j = 0; j < this.width; j++)
-				rev[i][j] = grid[j][i];
+		if (this.count >= alignLength) this.addAlignment(dir, line, p - 1);
+		this.remCol = 0; this.count = prevJoker? 2 : 1;
+		
+	}
+	
+	private void addAlignment(int dir, int line, int end) {
+		/*
+		 * Adds the this.count cells of an alignment to this.hits, from the last one to the first one.
+		 * Positions outside of the grid can't contain anything to kill so they are ignored.
+		 * In:
+		 *  dir, line: line of the alignment
+		 *  end: position of the last cell of the alignment
+		 */
 		
-		return rev;
+		int x, y;
+		for (int p = end; p > end - this.count; p--) {
+			
+			x = this.lineX(dir, line, p); y = this.lineY(dir, line, p);
+			if (x < 0 || x >= this.width || y < 0 || y >= this.height) continue;
+			
+			this.addHit(x, y);
+			
+		}
 		
 	}
 	
-	private int[][] reverse() {
+	void addHit(int x, int y) {
 		/*
-		 * Reverses the grid.
+		 * Adds a set of coordinates to this.hits, making it bigger if it is full.
+		 * In:
+		 *  x, y: coordinates
 		 */
 		
-		return this.reverse(this.g);
+		if (2 * this.nbHits == this.hits.length)
+			this.hits = Arrays.copyOf(this.hits, 2 * this.hits.length);
+		this.hits[2 * this.nbHits] = x;
+		this.hits[2 * this.nbHits + 1] = y;
+		this.nbHits += 1;
 		
 	}
 	
-	private int[][] shift(int[][] grid, int start, int sign) {
+	private boolean endsWithJoker(int dir, int line) {
 		/*
-		 * Shifts grid, by moving each line a certain number of cases to the right or to the left depending
-		 * of sign. Used to detect diagonals.
-		 * For example:
-		 *  0 1 2     0 1 2 0 0
-		 *  3 4 5 --> 0 3 4 5 0
-		 *  6 7 8     0 0 6 7 8
-		 * There are two ways to shift grid, to detect both types of diagonals:
-		 * - shift(grid, 0, 1)
-		 * - shift(grid, this.width + 1, - 1)
-		 * To get back the initial coordinates based on the shifted ones, apply:
-		 *  xi = xf - start - sign * y
+		 * Returns if the last position of a line is a joker (false if it is outside of the grid).
 		 * In:
-		 *  grid: grid to shift
-		 *  start: position from which the coordinates are recalculated
-		 *  sign: direction in which the cells are moved
+		 *  dir, line: line to check
 		 */
 		
-		int[][] shf = new int[this.width + this.height - 1][this.height];
+		int p = dir == 1? this.width - 1 : this.height - 1;
+		int x = this.lineX(dir, line, p);
 		
-		for (int i = 0; i < this.width; i++) for (int j = 0; j < this.height; j++)
-			shf[start + i + sign * j][j] = grid[i][j];
+		return x >= 0 && x < this.width && this.get(x, this.lineY(dir, line, p)) == 7;
 		
-		return shf;
+	}
+	
+	private int lineX(int dir, int line, int p) {
+		/*
+		 * Returns the x coordinate of the position p of a line.
+		 * In:
+		 *  dir, line: line
+		 *  p: position on the line
+		 */
+		
+		switch (dir) {
+		case 0:
+			return line;
+		case 1:
+			return p;
+		case 2:
+			return line - p;
+		default:
+			return line - this.height + 1 + p;
+		}
 		
 	}
 	
-	private int[][] shift(int start, int sign) {
+	private int lineY(int dir, int line, int p) {
 		/*
-		 * Shifts the grid.
-		 * See further explanation on the documentation of the shift(int[][], int, int) function.
+		 * Returns the y coordinate of the position p of a line.
 		 * In:
-		 *  start: position from which the coordinates are recalculated
-		 *  sign: direction in which the cells are moved
+		 *  dir, line: line
+		 *  p: position on the line
 		 */
 		
-		return this.shift(this.g, start, sign);
+		return dir == 1? line : p;
 		
 	}
 	
+
 	public boolean isStuck(int nextCapX, int nextCapY) {
 		/*
 		 * Returns if the game is stuck. Does so by checking if the location where the next capsule is
@@ -271,7 +413,139 @@ public class Grid {
 		 *  nextCapY: y coordinate of the next capsule
 		 */
 		
-		return (this.g[nextCapX][nextCapY] != 0 || this.g[nextCapX + 1][nextCapY] != 0);
+		return (this.get(nextCapX, nextCapY) != 0 || this.get(nextCapX + 1, nextCapY) != 0);
+		
+	}
+	
+	public int firstBelow(int x, int y) {
+		/*
+		 * Returns the y coordinate of the first case that isn't empty under (x, y), or this.height if the
+		 * column is empty under it.
+		 * With y = - 1, returns the highest filled case of the column.
+		 * In:
+		 *  x, y: coordinates (the case itself isn't counted)
+		 */
+		
+		if (this.columns != null) {
+			long under = y + 1 >= Grid.maxColumnHeight? 0 : this.columns[x] >>> (y + 1);
+			return under == 0? this.height : y + 1 + Long.numberOfTrailingZeros(under);
+		}
+		
+		int yB = y + 1;
+		while (yB < this.height && this.cases[x * this.height + yB] == 0) yB += 1;
+		
+		return yB;
+		
+	}
+	
+	public int get(int x, int y) {
+		/*
+		 * Returns the element in the case (x, y).
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		return this.cases[x * this.height + y];
+		
+	}
+	
+	public void set(int x, int y, int elt) {
+		/*
+		 * Puts elt in the case (x, y).
+		 * In:
+		 *  x, y: coordinates
+		 *  elt: element (look up the list at the top of the file)
+		 */
+		
+		int i = x * this.height + y;
+		this.cases[i] = (byte) elt;
+		this.dirty[i] = true;
+		
+		if (this.columns != null) {
+			if (elt == 0) this.columns[x] &= ~ (1L << y);
+			else          this.columns[x] |= 1L << y;
+		}
+		
+	}
+	
+	public Cell getElement(int x, int y) {
+		/*
+		 * Returns the cell, smiley or stone in the case (x, y), or null if there is none or if (x, y) is out of
+		 * the grid (a bomb next to a border).
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		if (! this.contains(x, y)) return null;
+		
+		return this.elements[x * this.height + y];
+		
+	}
+	
+	public boolean contains(int x, int y) {
+		/*
+		 * Returns if (x, y) is a case of the grid.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		return x >= 0 && y >= 0 && x < this.width && y < this.height;
+		
+	}
+	
+	public void setElement(int x, int y, Cell elt) {
+		/*
+		 * Remembers elt as the element in the case (x, y). Done by the elements themselves when they move.
+		 * In:
+		 *  x, y: coordinates
+		 *  elt: cell, smiley or stone, or null to empty the case
+		 */
+		
+		this.elements[x * this.height + y] = elt;
+		
+	}
+	
+	public void markDirty(int x, int y) {
+		/*
+		 * Marks the case (x, y) as dirty without changing it (its element looks different, look up takeDirty).
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		this.dirty[x * this.height + y] = true;
+		
+	}
+	
+	public int takeDirty(boolean[] into) {
+		/*
+		 * Gives the cases that changed since the last call to the display and forgets them. Returns their number.
+		 * The game and the display don't share a lock: a case is forgotten before the display draws it, so a
+		 * change made while it is drawing is taken by the next call instead of being lost.
+		 * In:
+		 *  into: set to true for every dirty case, in the same order as this.cases (the others are left as
+		 *   they are)
+		 */
+		
+		int n = 0;
+		for (int i = 0; i < this.dirty.length; i++) if (this.dirty[i]) {
+			this.dirty[i] = false;
+			into[i] = true;
+			n += 1;
+		}
+		
+		return n;
+		
+	}
+	
+	public byte[] copy() {
+		/*
+		 * Returns a copy of every case, in the same order as this.cases (look up get).
+		 */
+		
+		byte[] c = new byte[this.cases.length];
+		System.arraycopy(this.cases, 0, c, 0, this.cases.length);
+		
+		return c;
 		
 	}
 	
@@ -280,7 +554,18 @@ public class Grid {
 		 * Empties out the grid.
 		 */
 		
-		this.g = new int[this.width][this.height];
+		if (this.cases == null) {
+			this.cases = new byte[this.width * this.height];
+			this.elements = new Cell[this.width * this.height];
+			this.dirty = new boolean[this.width * this.height];
+		} else {
+			Arrays.fill(this.cases, (byte) 0);
+			Arrays.fill(this.elements, null);
+		}
+		Arrays.fill(this.dirty, true);
+		this.clearChanges();
+		if (this.columns != null) Arrays.fill(this.columns, 0);
+		this.entities.reset();
 		
 	}
 	
@@ -324,10 +609,10 @@ public class Grid {
 		t += "\n";
 		
 		// elements
-		for (int i = 0; i < this.g[0].length; i++) {
+		for (int i = 0; i < this.height; i++) {
 			t += "|"; // side border
-			for (int j = 0; j < this.g.length; j++)
-				t += (this.g[j][i] == 0? zero : Integer.toString(this.g[j][i])) + seph;
+			for (int j = 0; j < this.width; j++)
+				t += (this.get(j, i) == 0? zero : Integer.toString(this.get(j, i))) + seph;
 			t += "|" + sepv;
 		}
 		
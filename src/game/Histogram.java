@@ -0,0 +1,157 @@
+/*
+ * Histogram of durations, in nanoseconds, that many threads can fill at once without locks.
+ * 
+ * The buckets are like the ones of HdrHistogram: under 2^subBits, one bucket per value; above, every power
+ * of two is cut into 2^subBits buckets of the same width. So a value is kept with a precision of about
+ * 1 / 2^subBits (3 % here) whatever its size, in a fixed number of buckets.
+ * Recording a value is a few shifts and an atomic increment; nothing is allocated.
+ * 
+ * Libraries:
+ *  java.util.concurrent
+ */
+
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+	
+	static final int subBits = 5;
+	static final int subCount = 1 << Histogram.subBits;
+	static final int nbBuckets = Histogram.subCount * (64 - Histogram.subBits + 1);
+	
+	public final String name;
+	final AtomicLongArray counts;
+	final LongAdder count, sum;
+	final AtomicLong max;
+	
+	public Histogram(String name) {
+		
+		this.name = name;
+		this.counts = new AtomicLongArray(Histogram.nbBuckets);
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.max = new AtomicLong();
+		
+	}
+	
+	public void record(long v) {
+		/*
+		 * Adds a value (negative values count as 0).
+		 * In:
+		 *  v: duration, in nanoseconds
+		 */
+		
+		if (v < 0) v = 0;
+		
+		this.counts.incrementAndGet(Histogram.index(v));
+		this.count.increment();
+		this.sum.add(v);
+		
+		long m = this.max.get();
+		while (v > m && ! this.max.compareAndSet(m, v)) m = this.max.get();
+		
+	}
+	
+	public void since(long start) {
+		/*
+		 * Adds the time spent since start.
+		 * In:
+		 *  start: value of System.nanoTime at the start of the measure
+		 */
+		
+		this.record(System.nanoTime() - start);
+		
+	}
+	
+	static int index(long v) {
+		/*
+		 * Returns the bucket of a value.
+		 */
+		
+		if (v < Histogram.subCount) return (int) v;
+		
+		int shift = 63 - Long.numberOfLeadingZeros(v) - Histogram.subBits;
+		
+		return Histogram.subCount * (shift + 1) + (int) (v >>> shift) - Histogram.subCount;
+		
+	}
+	
+	static long highest(int i) {
+		/*
+		 * Returns the highest value of a bucket.
+		 */
+		
+		if (i < Histogram.subCount) return i;
+		
+		int shift = i / Histogram.subCount - 1;
+		long low = (long) (i % Histogram.subCount + Histogram.subCount) << shift;
+		
+		return low + (1L << shift) - 1;
+		
+	}
+	
+	public long count() {
+		
+		return this.count.sum();
+		
+	}
+	
+	public double mean() {
+		
+		long n = this.count.sum();
+		
+		return n == 0? 0 : (double) this.sum.sum() / n;
+		
+	}
+	
+	public long max() {
+		
+		return this.max.get();
+		
+	}
+	
+	public long percentile(double p) {
+		/*
+		 * Returns the value under which p % of the values are (rounded up to the end of its bucket).
+		 * In:
+		 *  p: percentage, from 0 to 100
+		 */
+		
+		long n = this.count.sum();
+		if (n == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < Histogram.nbBuckets; i++) {
+			seen += this.counts.get(i);
+			if (seen >= rank) return Math.min(Histogram.highest(i), this.max.get());
+		}
+		
+		return this.max.get();
+		
+	}
+	
+	public void reset() {
+		
+		for (int i = 0; i < Histogram.nbBuckets; i++) this.counts.set(i, 0);
+		this.count.reset();
+		this.sum.reset();
+		this.max.set(0);
+		
+	}
+	
+	public String toString() {
+		/*
+		 * Returns one line: the number of values, then the mean, percentiles and max in microseconds.
+		 */
+		
+		return String.format("%-12s %9d  mean %9.1f  p50 %9.1f  p90 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f us",
+				this.name, this.count(), this.mean() / 1e3, this.percentile(50) / 1e3, this.percentile(90) / 1e3,
+				this.percentile(99) / 1e3, this.percentile(99.9) / 1e3, this.max() / 1e3);
+				
+	}
+
+}
@@ -0,0 +1,12 @@
+/*
+ * Decides the input of every frame of a game run by a GameEngine (a bot, a replay, ...).
+ * Each game gets its own policy, so a policy can keep a state.
+ */
+
+package game;
+
+public interface InputPolicy {
+	
+	public int next(Game game, StepResult last); // key code for the next frame (look up Game.action), 0 for none
+
+}
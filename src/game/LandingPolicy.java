@@ -0,0 +1,123 @@
+/*
+ * Input policy that steers every capsule to a good place, like a careful player would.
+ * 
+ * When a capsule appears, every place it can land at is tried (each column, horizontal or vertical, in both
+ * color orders): its landing point is found from the grid like Capsule.getLandingPoint does, and the place
+ * gets a point for every case next to it of the same color as the cell beside it. The place with the most
+ * points wins, the lowest one if there are several. Then the capsule is rotated until it has the right
+ * orientation, moved to its column, and pushed down.
+ * If the capsule is blocked on its way (a rotation or a move that doesn't happen), it is pushed down where
+ * it is.
+ * Used as the default policy of the batch runner: its games last, so the levels and the events are
+ * measured on games that are really played.
+ */
+
+package game;
+
+import elements.Capsule;
+
+public class LandingPolicy implements InputPolicy {
+	
+	Capsule cap;      // capsule the target is for
+	int tx;           // column of the target (the left one if it is horizontal)
+	boolean tHori;    // is the target horizontal?
+	int tc0;          // color of the top-left cell at the target
+	int tries;        // number of inputs given to the capsule, so a blocked capsule is pushed down
+	
+	public LandingPolicy(long seed) {
+		/*
+		 * The seed is ignored, as the policy doesn't draw anything (it is there to match RandomPolicy).
+		 */
+		
+		this.cap = null;
+		
+	}
+	
+	public int next(Game game, StepResult last) {
+		
+		Capsule c = game.curCap;
+		if (c == null) return 0;
+		
+		if (c != this.cap) {
+			this.cap = c;
+			this.target(game.grid, c);
+			this.tries = 0;
+		}
+		
+		boolean mirror = game.eh != null && game.eh.mirrorOn;
+		int rotate = mirror? 40 : 38, down = mirror? 38 : 40, left = mirror? 39 : 37, right = mirror? 37 : 39;
+		
+		// a rotation goes through four orientations and a move through the width of the grid at most
+		this.tries += 1;
+		if (this.tries > 4 + game.grid.width) return down;
+		
+		if (c.hori != this.tHori || c.c0 != this.tc0) return rotate;
+		if (c.x < this.tx) return right;
+		if (c.x > this.tx) return left;
+		
+		return down;
+		
+	}
+	
+	void target(Grid grid, Capsule c) {
+		/*
+		 * Finds the best place for a capsule.
+		 * In:
+		 *  grid: grid of the game
+		 *  c: capsule
+		 */
+		
+		int yB = c.hori? c.y : c.y + 1; // the capsule's own cells are above yB
+		int best = Integer.MIN_VALUE;
+		
+		for (int o = 0; o < 4; o++) {
+			boolean hori = o < 2;
+			int p = o % 2 == 0? c.c0 : c.c1, q = o % 2 == 0? c.c1 : c.c0; // top-left and other color
+			if (o % 2 == 1 && p == q) continue;
+			
+			for (int x = 0; x < grid.width - (hori? 1 : 0); x++) {
+				int y, score;
+				if (hori) {
+					y = Math.min(grid.firstBelow(x, yB), grid.firstBelow(x + 1, yB)) - 1;
+					if (y < 0) continue;
+					score = LandingPolicy.same(grid, x, y + 1, p) + LandingPolicy.same(grid, x + 1, y + 1, q)
+						  + LandingPolicy.same(grid, x - 1, y, p) + LandingPolicy.same(grid, x + 2, y, q);
+				} else {
+					y = grid.firstBelow(x, yB) - 1; // bottom cell
+					if (y < 1) continue;
+					score = LandingPolicy.same(grid, x, y + 1, q)
+						  + LandingPolicy.same(grid, x - 1, y, q) + LandingPolicy.same(grid, x + 1, y, q)
+						  + LandingPolicy.same(grid, x - 1, y - 1, p) + LandingPolicy.same(grid, x + 1, y - 1, p);
+				}
+				
+				// a match is worth more than any height
+				score = score * grid.height + y;
+				if (score > best) {
+					best = score;
+					this.tx = x; this.tHori = hori; this.tc0 = p;
+				}
+			}
+		}
+		
+		// nowhere to land: the capsule stays as it is
+		if (best == Integer.MIN_VALUE) {
+			this.tx = c.x; this.tHori = c.hori; this.tc0 = c.c0;
+		}
+		
+	}
+	
+	static int same(Grid grid, int x, int y, int color) {
+		/*
+		 * Returns 1 if the case (x, y) is in the grid and has the color color, 0 otherwise.
+		 * In:
+		 *  x, y: coordinates
+		 *  color: color
+		 */
+		
+		if (x < 0 || x >= grid.width || y < 0 || y >= grid.height) return 0;
+		
+		return grid.get(x, y) == color? 1 : 0;
+		
+	}
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Input policy that presses a random key, or nothing, every frame.
+ * Used by the batch runner to stress the events; its own seed keeps the games reproducible.
+ */
+
+package game;
+
+import java.util.SplittableRandom;
+
+public class RandomPolicy implements InputPolicy {
+	
+	final SplittableRandom rnd;
+	final int[] keys; // keys to choose from, 0 for no input
+	
+	public RandomPolicy(long seed) {
+		
+		this.rnd = new SplittableRandom(seed);
+		// doing nothing is as likely as all the moves together
+		this.keys = new int[] {0, 0, 0, 0, 37, 39, 38, 40};
+		
+	}
+	
+	public int next(Game game, StepResult last) {
+		
+		return this.keys[this.rnd.nextInt(this.keys.length)];
+		
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Records a game so it can be played again (look up Replay).
+ * 
+ * A game only depends on its seed, its rules and the inputs given to the capsules, so only those are kept:
+ *  header: "S4R" and the version of the format (1 byte), the seed of the game (8 bytes), then the width and
+ *          the height of the grid, the number of cells to align, the number of colors, the level, the score
+ *          and the events (1 if they are on, else 0)
+ *  inputs: for every input, the number of frames since the last one (look up Game.playFrames), then the key
+ *          code + 1
+ *  end:    the number of frames since the last input, then 0
+ * Every number after the seed is a varint: 7 bits per byte, lowest bits first, the high bit set on every byte
+ * but the last. Nearly every input takes 2 bytes.
+ * 
+ * Nothing is done on the frames without input, and an input only writes a few bytes in an array, so a game
+ * can always be recorded.
+ * 
+ * Libraries:
+ *  java.io
+ */
+
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class Recorder {
+	
+	static final byte[] magic = {'S', '4', 'R', 1}; // the last byte is the version
+	
+	byte[] buf;
+	int len;
+	long last; // frame of the last input
+	public int nbInputs;
+	
+	public Recorder() {
+		
+		this.buf = new byte[256];
+		this.len = 0;
+		
+	}
+	
+	public void begin(Game game) {
+		/*
+		 * Forgets what was recorded and writes the header of a game that starts.
+		 * In:
+		 *  game: game (its level and score must already be set)
+		 */
+		
+		this.len = 0;
+		this.last = 0;
+		this.nbInputs = 0;
+		
+		for (byte b : Recorder.magic) this.write(b);
+		for (int i = 56; i >= 0; i -= 8) this.write((byte) (game.playSeed >>> i));
+		this.writeVarint(game.grid.width);
+		this.writeVarint(game.grid.height);
+		this.writeVarint(game.alignLength);
+		this.writeVarint(game.colMax);
+		this.writeVarint(game.level);
+		this.writeVarint(game.score);
+		this.writeVarint(game.eh != null && game.eh.isActive? 1 : 0);
+		
+	}
+	
+	public void input(long frame, int key) {
+		/*
+		 * Records an input.
+		 * In:
+		 *  frame: number of frames of the game before the input (look up Game.playFrames)
+		 *  key: key code
+		 */
+		
+		this.writeVarint(frame - this.last);
+		this.writeVarint(key + 1);
+		this.last = frame;
+		this.nbInputs += 1;
+		
+	}
+	
+	public byte[] finish(Game game) {
+		/*
+		 * Returns the recording, ended at the current frame of the game. The recording can go on after.
+		 * In:
+		 *  game: game recorded
+		 */
+		
+		int l = this.len;
+		this.writeVarint(game.playFrames - this.last);
+		this.writeVarint(0);
+		byte[] res = Arrays.copyOf(this.buf, this.len);
+		this.len = l;
+		
+		return res;
+		
+	}
+	
+	public void writeTo(OutputStream out, Game game) throws IOException {
+		/*
+		 * Writes the recording, ended at the current frame of the game.
+		 * In:
+		 *  out: stream
+		 *  game: game recorded
+		 */
+		
+		out.write(this.finish(game));
+		
+	}
+	
+	private void writeVarint(long v) {
+		
+		while ((v & ~0x7FL) != 0) {
+			this.write((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		this.write((byte) v);
+		
+	}
+	
+	private void write(byte b) {
+		
+		if (this.len == this.buf.length) this.buf = Arrays.copyOf(this.buf, 2 * this.buf.length);
+		this.buf[this.len] = b;
+		this.len += 1;
+		
+	}
+
+}
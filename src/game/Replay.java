@@ -0,0 +1,189 @@
+/*
+ * Game recorded by a Recorder, played again in a GameEngine in fast-forward.
+ * 
+ * Usage from the command line:
+ *  java game.Replay file            plays a recording and prints where the game ended
+ *  java game.Replay [games] [seed] [policy]
+ *                                   records games, plays them again, checks that they end the same way and
+ *                                   prints the speed of the playback
+ *                                   (policy: landing, the default, steers the capsules so lines are cleared
+ *                                   and cells fall in cascades (look up LandingPolicy); random presses random
+ *                                   keys)
+ * 
+ * Libraries:
+ *  java.io
+ *  java.nio.file
+ */
+
+package game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class Replay {
+	
+	public final long seed;
+	public final int width, height, alignLength, colMax, level, score;
+	public final boolean events;
+	
+	final byte[] data;
+	final int start; // index of the first input in data
+	int pos;         // index of the next byte to read
+	
+	public Replay(byte[] data) {
+		/*
+		 * Reads the header of a recording (look up Recorder for the format).
+		 * In:
+		 *  data: recording
+		 */
+		
+		this.data = data;
+		
+		if (data.length < Recorder.magic.length + 8)
+			throw new IllegalArgumentException("not a replay");
+		for (int i = 0; i < Recorder.magic.length; i++)
+			if (data[i] != Recorder.magic[i]) throw new IllegalArgumentException("not a replay, or another version");
+		this.pos = Recorder.magic.length;
+		
+		long s = 0;
+		for (int i = 0; i < 8; i++) s = (s << 8) | (data[this.pos + i] & 0xFF);
+		this.seed = s;
+		this.pos += 8;
+		
+		this.width = (int) this.readVarint();
+		this.height = (int) this.readVarint();
+		this.alignLength = (int) this.readVarint();
+		this.colMax = (int) this.readVarint();
+		this.level = (int) this.readVarint();
+		this.score = (int) this.readVarint();
+		this.events = this.readVarint() == 1;
+		
+		this.start = this.pos;
+		
+	}
+	
+	public static Replay read(InputStream in) throws IOException {
+		
+		return new Replay(in.readAllBytes());
+		
+	}
+	
+	public GameEngine play() {
+		/*
+		 * Plays the game again, in fast-forward, up to the end of the recording or to the end of the game.
+		 * Returns the engine, to read how the game ended.
+		 */
+		
+		GameEngine engine = new GameEngine(new Grid(this.width, this.height), this.seed);
+		Game g = engine.game;
+		g.setAlignLength(this.alignLength);
+		g.setColMax(this.colMax);
+		engine.eh.isActive = this.events;
+		engine.setFastForward(true);
+		engine.start(this.level);
+		g.score = this.score;
+		
+		this.pos = this.start;
+		long frame = this.readVarint();
+		int key = (int) this.readVarint() - 1;
+		
+		while (true) {
+			
+			// the inputs are given between two frames, like GameEngine.step does
+			if (g.generating && g.pausing) g.action(0);
+			while (key != - 1 && frame == g.playFrames) {
+				g.action(key);
+				frame += this.readVarint();
+				key = (int) this.readVarint() - 1;
+			}
+			
+			// end of the recording (the cells that were falling are left where they are)
+			if (key == - 1 && g.playFrames >= frame && ! g.isFalling) break;
+			
+			if (! engine.step(0).onGoing) break;
+			
+		}
+		
+		return engine;
+		
+	}
+	
+	private long readVarint() {
+		
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (this.pos == this.data.length) throw new IllegalArgumentException("replay cut short");
+			b = this.data[this.pos];
+			this.pos += 1;
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		
+		return v;
+		
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		if (args.length == 1 && ! args[0].matches("\\d+")) {
+			Replay r = new Replay(Files.readAllBytes(Paths.get(args[0])));
+			GameEngine e = r.play();
+			System.out.println("level: " + e.game.level + ", score: " + e.game.score + ", frames: "
+					+ e.game.playFrames + ", lost: " + e.game.lost);
+			return;
+		}
+		
+		int games = args.length > 0? Integer.parseInt(args[0]) : 1000;
+		long seed = args.length > 1? Long.parseLong(args[1]) : 0;
+		boolean random = args.length > 2 && args[2].equals("random");
+		
+		// recording games
+		byte[][] recs = new byte[games][];
+		String[] ends = new String[games];
+		long bytes = 0, kills = 0;
+		for (int i = 0; i < games; i++) {
+			long s = BatchRunner.gameSeed(seed, i);
+			GameEngine e = new GameEngine(new Grid(8, 19), s);
+			e.game.recorder = new Recorder();
+			InputPolicy p = random? new RandomPolicy(s) : new LandingPolicy(s);
+			e.start(i % 20);
+			StepResult r = null;
+			do r = e.step(p.next(e.game, r)); while (r.onGoing && r.frame < 100000);
+			recs[i] = e.game.recorder.finish(e.game);
+			ends[i] = Replay.end(e.game);
+			bytes += recs[i].length;
+			kills += e.game.kills;
+		}
+		
+		// playing them again (twice: the first time warms the JIT up and checks the games, the second is timed)
+		int wrong = 0;
+		for (int i = 0; i < games; i++)
+			if (! Replay.end(new Replay(recs[i]).play().game).equals(ends[i])) wrong += 1;
+		long frames = 0, start = System.nanoTime();
+		for (int i = 0; i < games; i++) frames += new Replay(recs[i]).play().result.frame;
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		System.out.println(games + " games, " + bytes / games + " bytes per replay, " + kills / games
+				+ " kills per game, " + wrong + " ended differently");
+		System.out.println(frames + " frames played in " + String.format("%.2f", seconds) + " s ("
+				+ String.format("%.0f", frames / seconds) + " frames/s)");
+				
+	}
+	
+	static String end(Game g) {
+		/*
+		 * Returns a text that sums up where a game ended, to compare two games.
+		 */
+		
+		String t = g.level + " " + g.score + " " + g.capsules + " " + g.kills + " " + g.lost + " " + g.playFrames;
+		for (int x = 0; x < g.grid.width; x++) for (int y = 0; y < g.grid.height; y++) t += g.grid.get(x, y);
+		
+		return t;
+		
+	}
+
+}
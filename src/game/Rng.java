@@ -0,0 +1,103 @@
+/*
+ * Stream of random numbers of a game.
+ * Gives exactly the same numbers as java.util.SplittableRandom (same algorithm, SplitMix64), but its state
+ * (two numbers) can be read and set again, so a game can be saved with its randomness (look up Snapshot).
+ */
+
+package game;
+
+public class Rng {
+	
+	static final long goldenGamma = 0x9e3779b97f4a7c15L;
+	
+	public long seed, gamma; // state: every number drawn adds gamma to seed, then mixes it
+	
+	public Rng(long seed) {
+		
+		this(seed, Rng.goldenGamma);
+		
+	}
+	
+	public Rng(long seed, long gamma) {
+		
+		this.seed = seed;
+		this.gamma = gamma;
+		
+	}
+	
+	public Rng split() {
+		/*
+		 * Returns a new stream, independent from this one.
+		 */
+		
+		return new Rng(this.nextLong(), Rng.mixGamma(this.nextSeed()));
+		
+	}
+	
+	public long nextLong() {
+		
+		return Rng.mix64(this.nextSeed());
+		
+	}
+	
+	public int nextInt() {
+		
+		return Rng.mix32(this.nextSeed());
+		
+	}
+	
+	public int nextInt(int bound) {
+		/*
+		 * Returns a number from 0 to bound - 1, all as likely.
+		 * In:
+		 *  bound: number of values (positive)
+		 */
+		
+		if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+		
+		int r = this.nextInt();
+		int m = bound - 1;
+		if ((bound & m) == 0) return r & m;
+		
+		// the values that would make some numbers more likely than others are drawn again
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = this.nextInt() >>> 1);
+		
+		return r;
+		
+	}
+	
+	private long nextSeed() {
+		
+		return this.seed += this.gamma;
+		
+	}
+	
+	private static long mix64(long z) {
+		
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		
+		return z ^ (z >>> 31);
+		
+	}
+	
+	private static int mix32(long z) {
+		
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+		
+	}
+	
+	private static long mixGamma(long z) {
+		
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		
+		return n < 24? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+		
+	}
+
+}
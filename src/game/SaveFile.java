@@ -0,0 +1,145 @@
+/*
+ * File of save slots: each slot holds the snapshot of a game (look up Snapshot), at a fixed place in the file.
+ * 
+ * The file is mapped in memory (MappedByteBuffer), so saving a game is only writing its snapshot in memory:
+ * the system writes the pages to the disk by itself, even if the program crashes right after. flush forces
+ * it to do it at once (before the computer is turned off, ...).
+ * The system writes the pages in any order, so a crash during a save can leave a slot half written. Each
+ * slot ends with a checksum (CRC32) of its snapshot, written after it, and a slot whose checksum doesn't
+ * match is taken as empty: a game is either loaded as it was saved, or not at all.
+ * 
+ * Libraries:
+ *  java.io
+ *  java.nio
+ *  java.util.zip
+ */
+
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class SaveFile implements Closeable {
+	
+	final FileChannel channel;
+	final MappedByteBuffer map;
+	final ByteBuffer view; // view of map that the checksums are computed on
+	final CRC32 crc;
+	public final int nbSlots, slotSize;
+	final int snapshotSize; // the slot is the snapshot, then its checksum (4 bytes)
+	
+	public SaveFile(Path path, int nbSlots, int width, int height) throws IOException {
+		/*
+		 * Opens a save file, or creates it.
+		 * In:
+		 *  path: path of the file
+		 *  nbSlots: number of slots
+		 *  width, height: size of the grid of the games saved
+		 */
+		
+		this.nbSlots = nbSlots;
+		this.snapshotSize = Snapshot.size(width, height);
+		this.slotSize = this.snapshotSize + 4;
+		
+		this.channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) nbSlots * this.slotSize);
+		this.view = this.map.duplicate();
+		this.crc = new CRC32();
+		
+	}
+	
+	public void save(int slot, Game game) {
+		/*
+		 * Saves a game in a slot, replacing what was there.
+		 * In:
+		 *  slot: index of the slot
+		 *  game: game
+		 */
+		
+		int offset = this.offset(slot);
+		Snapshot.write(game, this.map, offset);
+		this.map.putInt(offset + this.snapshotSize, this.checksum(offset));
+		
+	}
+	
+	public boolean load(int slot, Game game) {
+		/*
+		 * Puts a game back in the state saved in a slot. Returns false if nothing was saved there, or if the
+		 * save didn't finish.
+		 * In:
+		 *  slot: index of the slot
+		 *  game: game (on a grid of the same size)
+		 */
+		
+		if (this.isEmpty(slot)) return false;
+		
+		Snapshot.read(game, this.map, this.offset(slot));
+		
+		return true;
+		
+	}
+	
+	public boolean isEmpty(int slot) {
+		/*
+		 * Returns if there is no complete snapshot in a slot (never saved, cleared or half written).
+		 * In:
+		 *  slot: index of the slot
+		 */
+		
+		int offset = this.offset(slot);
+		if (this.map.getInt(offset) != Snapshot.magic) return true;
+		
+		return this.map.getInt(offset + this.snapshotSize) != this.checksum(offset);
+		
+	}
+	
+	public void clear(int slot) {
+		
+		this.map.putInt(this.offset(slot), 0);
+		
+	}
+	
+	private int checksum(int offset) {
+		/*
+		 * Returns the CRC32 of the snapshot at offset.
+		 * In:
+		 *  offset: index of the first byte of the slot
+		 */
+		
+		this.view.limit(offset + this.snapshotSize).position(offset);
+		this.crc.reset();
+		this.crc.update(this.view);
+		
+		return (int) this.crc.getValue();
+		
+	}
+	
+	private int offset(int slot) {
+		
+		if (slot < 0 || slot >= this.nbSlots) throw new IndexOutOfBoundsException("no slot " + slot);
+		
+		return slot * this.slotSize;
+		
+	}
+	
+	public void flush() {
+		
+		this.map.force();
+		
+	}
+	
+	public void close() throws IOException {
+		
+		this.flush();
+		this.channel.close();
+		
+	}
+
+}
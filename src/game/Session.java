@@ -0,0 +1,91 @@
+/*
+ * One game hosted by a SessionHost: the game, its event handler and the loop that runs its frames on the
+ * host's threads.
+ */
+
+package game;
+
+public class Session {
+	
+	public final int id;
+	public final Game game;
+	public final EventHandler eh;
+	final GameLoop loop;
+	final SessionHost host;
+	
+	Session(SessionHost host, int id, Grid grid, long seed) {
+		
+		this.host = host;
+		this.id = id;
+		
+		this.game = new Game(grid, seed);
+		this.eh = new EventHandler(this.game);
+		this.game.setEventHandler(this.eh);
+		this.loop = new GameLoop(this.game, host.exec, host.stepMillis);
+		this.game.setLoop(this.loop);
+		
+	}
+	
+	public void start(int level) {
+		/*
+		 * Starts generating a level. Like in the window, the frames only run after a first input.
+		 * In:
+		 *  level: level
+		 */
+		
+		synchronized (this.loop) {
+			this.game.play(level);
+		}
+		
+	}
+	
+	public void input(int key) {
+		/*
+		 * Gives a key to the game, never at the same time as one of its frames.
+		 * In:
+		 *  key: key code (look up Game.action)
+		 */
+		
+		synchronized (this.loop) {
+			this.game.action(key);
+		}
+		
+	}
+	
+	public long frames() {
+		
+		return this.loop.frames;
+		
+	}
+	
+	public long ticks() {
+		
+		return this.loop.ticks;
+		
+	}
+	
+	public RuntimeException failure() {
+		/*
+		 * Returns the exception that stopped the game's frames, or null if they didn't fail.
+		 */
+		
+		return this.loop.failure;
+		
+	}
+	
+	public long late() {
+		
+		return this.loop.late;
+		
+	}
+	
+	public void close() {
+		/*
+		 * Stops the game and removes it from its host.
+		 */
+		
+		this.host.close(this);
+		
+	}
+
+}
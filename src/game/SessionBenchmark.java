@@ -0,0 +1,119 @@
+/*
+ * Measures how many games a SessionHost can run per core at the normal cadence of the game (a fall of the
+ * capsule every 650 ms).
+ * For each number of games, the games are started, left running for a while, and the benchmark prints:
+ * - the number of threads of the program
+ * - the memory used per game
+ * - the CPU time used by the host's threads, and the number of games one core could run at that rate
+ * - the number of frames run, the number of ticks of the loops, and the share of ticks that came late
+ * 
+ * Usage from the command line:
+ *  java game.SessionBenchmark [threads] [stepMillis] [seconds] [sessions...]
+ * 
+ * Libraries:
+ *  java.lang.management
+ */
+
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class SessionBenchmark {
+	
+	public static void main(String[] args) throws InterruptedException {
+		
+		int threads = args.length > 0? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int stepMillis = args.length > 1? Integer.parseInt(args[1]) : 25;
+		int seconds = args.length > 2? Integer.parseInt(args[2]) : 10;
+		int[] sizes = {100, 1000, 5000};
+		if (args.length > 3) {
+			sizes = new int[args.length - 3];
+			for (int i = 3; i < args.length; i++) sizes[i - 3] = Integer.parseInt(args[i]);
+		}
+		
+		System.out.println("threads: " + threads + ", step: " + stepMillis + " ms, " + seconds + " s per run");
+		for (int n : sizes) SessionBenchmark.run(n, threads, stepMillis, seconds);
+		
+	}
+	
+	static void run(int n, int threads, int stepMillis, int seconds) throws InterruptedException {
+		/*
+		 * Runs n games for a number of seconds and prints the measures.
+		 * In:
+		 *  n: number of games
+		 *  threads: number of threads of the host
+		 *  stepMillis: logical timestep of the loops
+		 *  seconds: duration of the measure
+		 */
+		
+		Runtime rt = Runtime.getRuntime();
+		ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		
+		System.gc();
+		long memBefore = rt.totalMemory() - rt.freeMemory();
+		
+		SessionHost host = new SessionHost(threads, stepMillis);
+		Session[] sessions = new Session[n];
+		for (int i = 0; i < n; i++) {
+			sessions[i] = host.open(8, 19, i);
+			sessions[i].start(0);
+		}
+		
+		// the levels are generated one smiley at a time, then the first input starts them
+		Thread.sleep(2000);
+		for (Session s : sessions) s.input(0);
+		
+		System.gc();
+		long memAfter = rt.totalMemory() - rt.freeMemory();
+		
+		long cpu0 = SessionBenchmark.hostCpu(mx);
+		long frames0 = 0, ticks0 = 0, late0 = 0;
+		for (Session s : sessions) {
+			frames0 += s.frames();
+			ticks0 += s.ticks();
+			late0 += s.late();
+		}
+		long t0 = System.nanoTime();
+		
+		Thread.sleep(seconds * 1000L);
+		
+		long wall = System.nanoTime() - t0;
+		long cpu = SessionBenchmark.hostCpu(mx) - cpu0;
+		long frames = - frames0, ticks = - ticks0, late = - late0;
+		for (Session s : sessions) {
+			frames += s.frames();
+			ticks += s.ticks();
+			late += s.late();
+		}
+		int nbThreads = Thread.activeCount();
+		host.shutdown();
+		
+		double cores = (double) cpu / wall; // number of cores kept busy by the host
+		System.out.println(n + " sessions: " + nbThreads + " threads, "
+				+ (memAfter - memBefore) / n / 1024 + " KiB per session, "
+				+ String.format("%.3f", cores) + " cores busy, "
+				+ String.format("%.0f", cores > 0? n / cores : Double.POSITIVE_INFINITY) + " sessions per core, "
+				+ frames + " frames, "
+				+ ticks + " ticks, "
+				+ String.format("%.2f", ticks > 0? 100.0 * late / ticks : 0) + " % late ticks");
+				
+	}
+	
+	static long hostCpu(ThreadMXBean mx) {
+		/*
+		 * Returns the CPU time used so far by the threads of the hosts, in nanoseconds.
+		 */
+		
+		long t = 0;
+		for (Thread th : Thread.getAllStackTraces().keySet())
+			if (th.getName().startsWith("session-host-")) {
+				long c = mx.getThreadCpuTime(th.getId());
+				if (c > 0) t += c;
+			}
+		
+		return t;
+		
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Hosts many games at once in one program (a server, a test bench, ...).
+ * 
+ * Every game has its own loop (look up GameLoop), with its own clock and its own time before the next frame,
+ * but all the loops tick on a small pool of threads shared by the host. So the number of threads stays the
+ * same however many games are hosted, and a game that waits for its next frame costs only a few objects and
+ * a single pending tick.
+ * 
+ * Libraries:
+ *  java.util.concurrent
+ */
+
+package game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SessionHost {
+	
+	final ScheduledThreadPoolExecutor exec;
+	public final int threads;
+	public final int stepMillis; // logical timestep of the loops, in milliseconds
+	
+	final ConcurrentHashMap<Integer, Session> sessions;
+	final AtomicInteger nextId;
+	
+	public SessionHost(int threads, int stepMillis) {
+		/*
+		 * In:
+		 *  threads: number of threads shared by the games
+		 *  stepMillis: logical timestep of the loops (a few times less than the shortest delay of a frame)
+		 */
+		
+		this.threads = threads;
+		this.stepMillis = stepMillis;
+		
+		AtomicInteger n = new AtomicInteger();
+		this.exec = new ScheduledThreadPoolExecutor(threads, r -> {
+			Thread t = new Thread(r, "session-host-" + n.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		});
+		// the ticks of closed sessions are removed from the queue at once instead of when they are due
+		this.exec.setRemoveOnCancelPolicy(true);
+		
+		this.sessions = new ConcurrentHashMap<Integer, Session>();
+		this.nextId = new AtomicInteger();
+		
+	}
+	
+	public Session open(int width, int height, long seed) {
+		/*
+		 * Creates a game and returns its session. The game starts with Session.start.
+		 * In:
+		 *  width, height: size of the grid
+		 *  seed: seed of the game
+		 */
+		
+		Session s = new Session(this, this.nextId.getAndIncrement(), new Grid(width, height), seed);
+		this.sessions.put(s.id, s);
+		
+		return s;
+		
+	}
+	
+	public Session get(int id) {
+		
+		return this.sessions.get(id);
+		
+	}
+	
+	void close(Session s) {
+		/*
+		 * Stops a game and forgets it.
+		 * In:
+		 *  s: session of the game
+		 */
+		
+		s.loop.stop();
+		this.sessions.remove(s.id);
+		
+	}
+	
+	public int count() {
+		/*
+		 * Returns the number of games hosted.
+		 */
+		
+		return this.sessions.size();
+		
+	}
+	
+	public void shutdown() {
+		/*
+		 * Stops every game and the threads.
+		 */
+		
+		for (Session s : this.sessions.values()) this.close(s);
+		this.exec.shutdownNow();
+		
+	}
+
+}
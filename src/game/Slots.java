@@ -0,0 +1,104 @@
+/*
+ * Keeps track of which indexes of an array of elements (game.cells or game.smileys) are used.
+ * The array itself stays in the game; this object only gives the indexes:
+ * - alloc returns a free index (the last one released, or the lowest one if none was)
+ * - release makes an index free again
+ * Both are done in constant time, with a stack of the free indexes.
+ * 
+ * The used indexes are also kept next to each other in live, so the elements can be read without going
+ * through the null holes of the array:
+ *  array: cell null cell cell null null ...
+ *  live:  0 2 3
+ * When an index is released, the last index of live takes its place, so live isn't in any order.
+ */
+
+package game;
+
+public class Slots {
+	
+	int[] free;  // stack of the free indexes, the next one to give at the end
+	int nbFree;
+	
+	public int[] live; // used indexes, from 0 to nbLive - 1
+	public int nbLive;
+	int[] pos;         // pos[i]: position of the index i in live (- 1 if it is free)
+	
+	public Slots(int size) {
+		
+		this.reset(size);
+		
+	}
+	
+	public int alloc() {
+		/*
+		 * Returns a free index and marks it as used. Returns - 1 if every index is used.
+		 */
+		
+		if (this.nbFree == 0) return - 1;
+		
+		this.nbFree -= 1;
+		int i = this.free[this.nbFree];
+		
+		this.pos[i] = this.nbLive;
+		this.live[this.nbLive] = i;
+		this.nbLive += 1;
+		
+		return i;
+		
+	}
+	
+	public void release(int i) {
+		/*
+		 * Marks the index i as free. Does nothing if it already is.
+		 * In:
+		 *  i: index
+		 */
+		
+		int p = this.pos[i];
+		if (p == - 1) return;
+		
+		// the last used index takes its place in live
+		this.nbLive -= 1;
+		int last = this.live[this.nbLive];
+		this.live[p] = last;
+		this.pos[last] = p;
+		this.pos[i] = - 1;
+		
+		this.free[this.nbFree] = i;
+		this.nbFree += 1;
+		
+	}
+	
+	public int freeCount() {
+		/*
+		 * Returns the number of free indexes.
+		 */
+		
+		return this.nbFree;
+		
+	}
+	
+	public void reset(int size) {
+		/*
+		 * Frees every index and sets the number of indexes to size.
+		 * In:
+		 *  size: length of the array of elements
+		 */
+		
+		if (this.free == null || this.free.length != size) {
+			this.free = new int[size];
+			this.live = new int[size];
+			this.pos = new int[size];
+		}
+		
+		// the lowest indexes are at the end of the stack so they are given first
+		for (int i = 0; i < size; i++) {
+			this.free[i] = size - 1 - i;
+			this.pos[i] = - 1;
+		}
+		this.nbFree = size;
+		this.nbLive = 0;
+		
+	}
+
+}
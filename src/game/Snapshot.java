@@ -0,0 +1,389 @@
+/*
+ * Saves the whole state of a game in a fixed-layout binary form, and loads it back.
+ * Used by the save files (look up SaveFile), and by anything that needs to go back to an earlier state of a
+ * game (a bot trying moves, ...).
+ * 
+ * The layout only depends on the size of the grid (look up size), so the snapshots of a grid can be stored
+ * one after the other and overwritten in place. In order (big-endian):
+ *  header:   "S4S" and the version of the layout, width and height of the grid (2 bytes each)
+ *            (the magic "S4S" is cleared first and written last, so a snapshot cut short isn't read)
+ *  game:     states (one bit each), numbers of the game, seeds and states of the four streams of randomness
+ *  capsule:  is there one, then its position, its direction and its colors
+ *  events:   is there an event handler, its states, its counters, the order of the events (padded to
+ *            maxEvents) and the length of the array of stones
+ *  cases:    every number of the grid (look up Grid.get)
+ *  elements: for every case: kind of the element in it (look up record), its color and its index in the
+ *            array that holds it (game.cells, game.smileys or eh.stones)
+ *  changes:  lines to read at the next detection (look up Grid.touch)
+ *  slots:    free and used indexes of game.cells, then of game.smileys (look up Slots)
+ * 
+ * The cell-friends aren't stored: the cell-friend of a fused cell is always the case next to it, on its
+ * right (horizontal top-left cell), on its left, under it (vertical top-left cell) or over it.
+ * The moves of the gravity aren't stored either: they are computed again from the cases at the next frame,
+ * which gives the same final positions. The deleted cells that are shown for a frame are forgotten.
+ * 
+ * Nothing is allocated while saving. Loading creates the elements again (views given back by the store).
+ * 
+ * Libraries:
+ *  java.nio
+ *  java.util
+ */
+
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import elements.Capsule;
+import elements.Cell;
+import elements.Entities;
+import elements.Smiley;
+import elements.Stone;
+
+public class Snapshot {
+	
+	static final int magic = 'S' << 24 | '4' << 16 | 'S' << 8 | 1; // the last byte is the version
+	static final int maxEvents = 32;
+	
+	// bits of an element's record
+	static final int present = 1, hori = 2, tl = 4, fused = 8;
+	static final int kindShift = 4;
+	
+	public static int size(int width, int height) {
+		/*
+		 * Returns the number of bytes of the snapshot of a game on a grid of this size.
+		 * In:
+		 *  width, height: size of the grid
+		 */
+		
+		int n = width * height;
+		int lines = width + height + 2 * (width + height - 1);
+		
+		return 8                        // header
+				+ 2 + 13 * 4 + 2 * 4    // game: states, numbers
+				+ 2 * 8 + 4 * 2 * 8     // game: seeds, randomness
+				+ 12                    // capsule
+				+ 2 + 6 * 4 + 2 * Snapshot.maxEvents * 4 // events
+				+ n                     // cases
+				+ 4 * n                 // elements
+				+ 4 + 4 * 4 + 4 * lines // changes
+				+ 2 * (8 + 8 * n);      // slots
+				
+	}
+	
+	public static void write(Game game, ByteBuffer buf, int offset) {
+		/*
+		 * Writes the snapshot of a game in buf, from offset.
+		 * In:
+		 *  game: game
+		 *  buf: buffer (at least offset + size bytes long)
+		 *  offset: index of the first byte
+		 */
+		
+		Grid grid = game.grid;
+		int n = grid.width * grid.height;
+		buf.putInt(offset, 0);
+		buf.position(offset + 4);
+		
+		buf.putShort((short) grid.width);
+		buf.putShort((short) grid.height);
+		
+		// game
+		
+		int bits = Snapshot.bits(game.onGoing, 0) | Snapshot.bits(game.starting, 1) | Snapshot.bits(game.pausing, 2)
+				| Snapshot.bits(game.generating, 3) | Snapshot.bits(game.lost, 4) | Snapshot.bits(game.downOn, 5)
+				| Snapshot.bits(game.isFalling, 6) | Snapshot.bits(game.finish, 7)
+				| Snapshot.bits(game.deletingCells, 8);
+		buf.putShort((short) bits);
+		
+		buf.putInt(game.score); buf.putInt(game.smileysLeft); buf.putInt(game.level);
+		buf.putInt(game.upComingC0); buf.putInt(game.upComingC1);
+		buf.putInt(game.nextCapX); buf.putInt(game.nextCapY);
+		buf.putInt(game.alignLength); buf.putInt(game.colMax);
+		buf.putInt(game.kills); buf.putInt(game.capsules); buf.putInt(game.nbPlays);
+		buf.putInt(game.smileys == null? - 1 : game.smileys.length);
+		buf.putFloat(game.speeder); buf.putFloat(game.timeSpent);
+		
+		buf.putLong(game.playFrames); buf.putLong(game.playSeed);
+		Snapshot.writeRng(game.seeds, buf);
+		Snapshot.writeRng(game.genRnd, buf);
+		Snapshot.writeRng(game.capRnd, buf);
+		Snapshot.writeRng(game.evtRnd, buf);
+		
+		// capsule
+		
+		Capsule cap = game.curCap;
+		buf.put((byte) (cap == null? 0 : 1));
+		buf.putInt(cap == null? 0 : cap.x);
+		buf.putInt(cap == null? 0 : cap.y);
+		buf.put((byte) (cap != null && cap.hori? 1 : 0));
+		buf.put((byte) (cap == null? 0 : cap.c0));
+		buf.put((byte) (cap == null? 0 : cap.c1));
+		
+		// events
+		
+		EventHandler eh = game.eh;
+		if (eh == null) {
+			buf.putShort((short) 0);
+			buf.position(buf.position() + 6 * 4 + 2 * Snapshot.maxEvents * 4);
+		} else {
+			bits = 1 | Snapshot.bits(eh.isActive, 1) | Snapshot.bits(eh.alcOn, 2) | Snapshot.bits(eh.ghostOn, 3)
+					| Snapshot.bits(eh.mirrorOn, 4) | Snapshot.bits(eh.starterOn, 5) | Snapshot.bits(eh.blockerOn, 6)
+					| Snapshot.bits(eh.sunOn, 7);
+			buf.putShort((short) bits);
+			buf.putInt(eh.cur); buf.putInt(eh.counter); buf.putInt(eh.counterTot); buf.putInt(eh.state);
+			buf.putInt(eh.nbEvents);
+			buf.putInt(eh.stones.length);
+			for (int i = 0; i < Snapshot.maxEvents; i++) buf.putInt(i < eh.nbEvents? eh.eventsIni[i] : 0);
+			for (int i = 0; i < Snapshot.maxEvents; i++) buf.putInt(i < eh.nbEvents? eh.events[i] : 0);
+		}
+		
+		// cases and elements
+		
+		buf.put(grid.cases, 0, n);
+		Entities es = grid.entities;
+		for (int i = 0; i < n; i++) {
+			Cell c = grid.elements[i];
+			if (c == null) {
+				buf.putInt(0);
+				continue;
+			}
+			int r = Snapshot.present | es.kind[c.id] << Snapshot.kindShift;
+			if (c.isHori())  r |= Snapshot.hori;
+			if (c.isTl())    r |= Snapshot.tl;
+			if (c.isFused()) r |= Snapshot.fused;
+			buf.put((byte) r);
+			buf.put((byte) c.getColor());
+			buf.putShort((short) c.getSlot());
+		}
+		
+		// changes
+		
+		buf.putInt(grid.lastAlignLength);
+		for (int dir = 0; dir < 4; dir++) buf.putInt(grid.nbChanges[dir]);
+		for (int dir = 0; dir < 4; dir++)
+			for (int i = 0; i < grid.changes[dir].length; i++) buf.putInt(grid.changes[dir][i]);
+		
+		// slots
+		
+		Snapshot.writeSlots(game.cellSlots, buf, n);
+		Snapshot.writeSlots(game.smileySlots, buf, n);
+		
+		buf.putInt(offset, Snapshot.magic);
+		
+	}
+	
+	private static int bits(boolean b, int i) {
+		/*
+		 * Returns the bit i set if b is true, else 0.
+		 */
+		
+		return b? 1 << i : 0;
+		
+	}
+	
+	private static void writeRng(Rng r, ByteBuffer buf) {
+		
+		buf.putLong(r.seed);
+		buf.putLong(r.gamma);
+		
+	}
+	
+	private static void writeSlots(Slots s, ByteBuffer buf, int n) {
+		/*
+		 * Writes the free and the used indexes, padded to n each.
+		 */
+		
+		int size = s.free.length;
+		buf.putInt(s.nbFree);
+		for (int i = 0; i < n; i++) buf.putInt(i < size? s.free[i] : 0);
+		buf.putInt(s.nbLive);
+		for (int i = 0; i < n; i++) buf.putInt(i < size? s.live[i] : 0);
+		
+	}
+	
+	public static void read(Game game, ByteBuffer buf, int offset) {
+		/*
+		 * Puts the game back in the state saved at offset in buf.
+		 * The game must be on a grid of the same size, and its loop mustn't be running a frame at the same time.
+		 * In:
+		 *  game: game
+		 *  buf: buffer
+		 *  offset: index of the first byte of the snapshot
+		 */
+		
+		Grid grid = game.grid;
+		int n = grid.width * grid.height;
+		buf.position(offset);
+		
+		if (buf.getInt() != Snapshot.magic) throw new IllegalArgumentException("not a snapshot, or another version");
+		if (buf.getShort() != grid.width || buf.getShort() != grid.height)
+			throw new IllegalArgumentException("snapshot of another size of grid");
+		
+		// game
+		
+		int bits = buf.getShort();
+		game.onGoing       = (bits & 1) != 0;
+		game.starting      = (bits & 1 << 1) != 0;
+		game.pausing       = (bits & 1 << 2) != 0;
+		game.generating    = (bits & 1 << 3) != 0;
+		game.lost          = (bits & 1 << 4) != 0;
+		game.downOn        = (bits & 1 << 5) != 0;
+		game.isFalling     = (bits & 1 << 6) != 0;
+		game.finish        = (bits & 1 << 7) != 0;
+		game.deletingCells = (bits & 1 << 8) != 0;
+		game.lastDeaths = null;
+		
+		game.score = buf.getInt(); game.smileysLeft = buf.getInt(); game.level = buf.getInt();
+		game.upComingC0 = buf.getInt(); game.upComingC1 = buf.getInt();
+		game.nextCapX = buf.getInt(); game.nextCapY = buf.getInt();
+		game.alignLength = buf.getInt(); game.colMax = buf.getInt();
+		game.kills = buf.getInt(); game.capsules = buf.getInt(); game.nbPlays = buf.getInt();
+		int nbSmileys = buf.getInt();
+		game.speeder = buf.getFloat(); game.timeSpent = buf.getFloat();
+		
+		game.playFrames = buf.getLong(); game.playSeed = buf.getLong();
+		game.seeds = new Rng(buf.getLong(), buf.getLong());
+		game.genRnd = new Rng(buf.getLong(), buf.getLong());
+		game.capRnd = new Rng(buf.getLong(), buf.getLong());
+		game.evtRnd = new Rng(buf.getLong(), buf.getLong());
+		
+		// capsule (its cases are set with the others)
+		
+		boolean hasCap = buf.get() == 1;
+		int capX = buf.getInt(), capY = buf.getInt();
+		boolean capHori = buf.get() == 1;
+		int c0 = buf.get(), c1 = buf.get();
+		
+		// events
+		
+		EventHandler eh = game.eh;
+		bits = buf.getShort();
+		int ehStart = buf.position();
+		int nbStones = 0;
+		if ((bits & 1) != 0 && eh != null) {
+			eh.isActive  = (bits & 1 << 1) != 0;
+			eh.alcOn     = (bits & 1 << 2) != 0;
+			eh.ghostOn   = (bits & 1 << 3) != 0;
+			eh.mirrorOn  = (bits & 1 << 4) != 0;
+			eh.starterOn = (bits & 1 << 5) != 0;
+			eh.blockerOn = (bits & 1 << 6) != 0;
+			eh.sunOn     = (bits & 1 << 7) != 0;
+			eh.cur = buf.getInt(); eh.counter = buf.getInt(); eh.counterTot = buf.getInt(); eh.state = buf.getInt();
+			int nb = buf.getInt();
+			nbStones = buf.getInt();
+			eh.eventsIni = new int[nb]; eh.events = new int[nb];
+			for (int i = 0; i < Snapshot.maxEvents; i++) {
+				int e = buf.getInt();
+				if (i < nb) eh.eventsIni[i] = e;
+			}
+			for (int i = 0; i < Snapshot.maxEvents; i++) {
+				int e = buf.getInt();
+				if (i < nb) eh.events[i] = e;
+			}
+			eh.stones = new Stone[nbStones];
+			eh.rnd = game.evtRnd;
+		}
+		buf.position(ehStart + 6 * 4 + 2 * Snapshot.maxEvents * 4);
+		
+		// elements
+		
+		grid.reset();
+		game.grav.reset();
+		Arrays.fill(game.cells, null);
+		if (nbSmileys == - 1) game.smileys = null;
+		else if (game.smileys == null || game.smileys.length != nbSmileys) game.smileys = new Smiley[nbSmileys];
+		else Arrays.fill(game.smileys, null);
+		
+		int casesStart = buf.position();
+		Entities es = grid.entities;
+		int h = grid.height;
+		for (int i = 0; i < n; i++) {
+			int r = buf.get(casesStart + n + 4 * i);
+			if ((r & Snapshot.present) == 0) continue;
+			int color = buf.get(casesStart + n + 4 * i + 1);
+			int slot = buf.getShort(casesStart + n + 4 * i + 2);
+			int x = i / h, y = i % h;
+			switch (r >> Snapshot.kindShift) {
+			case Entities.SMILEY:
+				Smiley s = es.newSmiley(x, y, color);
+				s.setSlot(slot);
+				game.smileys[slot] = s;
+				break;
+			case Entities.STONE:
+				Stone st = es.newStone(x, y);
+				st.setSlot(slot);
+				if (slot < nbStones) game.eh.stones[slot] = st;
+				break;
+			default:
+				Cell c = es.newCell(x, y, (r & Snapshot.hori) != 0, (r & Snapshot.tl) != 0, null, color);
+				c.setSlot(slot);
+				game.cells[slot] = c;
+			}
+		}
+		
+		// cell-friends, from the top-left cell of each pair
+		for (int i = 0; i < n; i++) {
+			int r = buf.get(casesStart + n + 4 * i);
+			if ((r & Snapshot.fused) == 0 || (r & Snapshot.tl) == 0) continue;
+			int x = i / h, y = i % h;
+			if ((r & Snapshot.hori) != 0) es.fuse(grid.elements[i], grid.getElement(x + 1, y));
+			else                          es.fuse(grid.elements[i], grid.getElement(x, y + 1));
+		}
+		
+		if (hasCap) {
+			Capsule cap = new Capsule(grid, 0, 0, c0, c1); // its cases are set below
+			cap.x = capX; cap.y = capY;
+			cap.hori = capHori;
+			game.curCap = cap;
+		} else
+			game.curCap = null;
+		
+		// cases (the capsule, the blocker, ... aren't elements)
+		for (int i = 0; i < n; i++) grid.set(i / h, i % h, buf.get(casesStart + i));
+		buf.position(casesStart + 5 * n);
+		
+		// changes
+		
+		grid.clearChanges();
+		grid.lastAlignLength = buf.getInt();
+		for (int dir = 0; dir < 4; dir++) grid.nbChanges[dir] = buf.getInt();
+		for (int dir = 0; dir < 4; dir++)
+			for (int i = 0; i < grid.changes[dir].length; i++) grid.changes[dir][i] = buf.getInt();
+		for (int dir = 0; dir < 4; dir++)
+			for (int i = 0; i < grid.nbChanges[dir]; i++) grid.changed[dir][grid.changes[dir][i]] = true;
+		
+		// slots
+		
+		Snapshot.readSlots(game.cellSlots, buf, n, n);
+		Snapshot.readSlots(game.smileySlots, buf, n, Math.max(nbSmileys, 0));
+		
+		// the cases are all set, the capsule can look where it lands
+		if (hasCap) game.curCap.updateLandingPoint();
+		
+	}
+	
+	private static void readSlots(Slots s, ByteBuffer buf, int n, int size) {
+		/*
+		 * Reads the free and the used indexes of an array of size elements, padded to n each.
+		 */
+		
+		if (s.free == null || s.free.length != size) s.reset(size);
+		
+		s.nbFree = buf.getInt();
+		for (int i = 0; i < n; i++) {
+			int v = buf.getInt();
+			if (i < size) s.free[i] = v;
+		}
+		s.nbLive = buf.getInt();
+		for (int i = 0; i < n; i++) {
+			int v = buf.getInt();
+			if (i < size) s.live[i] = v;
+		}
+		
+		for (int i = 0; i < size; i++) s.pos[i] = - 1;
+		for (int i = 0; i < s.nbLive; i++) s.pos[s.live[i]] = i;
+		
+	}
+
+}
@@ -0,0 +1,22 @@
+/*
+ * What happened during one frame run by a GameEngine (look up GameEngine.step).
+ * The engine gives the same object back at every step, so it should be read before the next one.
+ */
+
+package game;
+
+public class StepResult {
+	
+	public long frame;    // number of frames run by the engine, this one included
+	public int delay;     // how long the frame would have lasted in the window, in milliseconds
+	
+	public boolean landed;  // did a capsule finish its fall?
+	public int kills;       // number of cells and smileys deleted
+	public boolean cleared; // was the level cleared? (the next one is then already generated)
+	public boolean lost;    // is the game lost?
+	public boolean onGoing; // can the game still go on?
+	
+	// state of the game after the frame
+	public int level, score, smileysLeft;
+
+}
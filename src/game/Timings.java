@@ -0,0 +1,59 @@
+/*
+ * Times spent in each part of a frame, one histogram per part (look up Histogram):
+ *  update:      Game.update, the whole state change of a frame
+ *  gravity:     cells falling by one case (or to the bottom, in fast-forward)
+ *  deleteLines: detection and deletion of the alignments
+ *  capsule:     fall of the capsule
+ *  lastChecks:  checks after the cells have landed (end of the level, lost game, ...)
+ *  events:      EventHandler.decrease
+ *  paint:       Canvas.paint
+ * 
+ * The timings are off unless a Timings object is given to the game (Game.timings); when they are off, each
+ * part only costs a check that the field is null. The same object can be given to many games (the
+ * histograms don't need locks), to see the times of all of them together.
+ * 
+ * Libraries:
+ *  java.io
+ */
+
+package game;
+
+import java.io.PrintStream;
+
+public class Timings {
+	
+	public final Histogram update, gravity, deleteLines, capsule, lastChecks, events, paint;
+	final Histogram[] all;
+	
+	public Timings() {
+		
+		this.update      = new Histogram("update");
+		this.gravity     = new Histogram("gravity");
+		this.deleteLines = new Histogram("deleteLines");
+		this.capsule     = new Histogram("capsule");
+		this.lastChecks  = new Histogram("lastChecks");
+		this.events      = new Histogram("events");
+		this.paint       = new Histogram("paint");
+		this.all = new Histogram[] {this.update, this.gravity, this.deleteLines, this.capsule, this.lastChecks,
+				this.events, this.paint};
+				
+	}
+	
+	public void dump(PrintStream out) {
+		/*
+		 * Writes one line per part that was timed at least once.
+		 * In:
+		 *  out: stream (System.out, ...)
+		 */
+		
+		for (Histogram h : this.all) if (h.count() > 0) out.println(h);
+		
+	}
+	
+	public void reset() {
+		
+		for (Histogram h : this.all) h.reset();
+		
+	}
+
+}
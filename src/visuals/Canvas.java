@@ -1,5 +1,16 @@
 /*
- * Canvas displaying the current state of the game. Contained inside a frame object.
+ * Canvas displaying the current state of the game. Contained inside a frame object, or drawn into an image
+ * without any window (look up the second constructor).
+ * 
+ * The canvas is drawn into an image kept between two paints (this.screen), which is then copied to the
+ * screen. While a game is being played, a paint only draws again what changed since the last one:
+ * - the cases the grid marked as dirty (look up Grid.takeDirty), with the background under them
+ * - the cases of the capsule, its landing point and the cells that just died, at the last paint and now
+ *   (they aren't on the grid)
+ * - the smileys that changed face, and the blocker if something under it was drawn again
+ * - the informations at the top, if one of the values they show changed
+ * Everything is drawn again in the menus, the pause, the end screen, and after reset. What doesn't change in
+ * each of those states is drawn once into a layer (look up Layer) and copied at the start of the paint.
  * 
  * Libraries:
  *  java.util
@@ -10,6 +21,7 @@
 
 package visuals;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import java.awt.Graphics2D;
@@ -21,6 +33,8 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
@@ -31,16 +45,23 @@ import java.io.IOException;
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
+import game.Display;
+import game.EventHandler;
 import game.Game;
+import game.Grid;
+import game.Timings;
+import elements.Capsule;
 import elements.Cell;
 import elements.Smiley;
 import elements.Stone;
+import flight.PaintEvent;
 
-public class Canvas extends JPanel implements KeyListener, MouseListener {
+public class Canvas extends JPanel implements Display, KeyListener, MouseListener {
 	
 	final Game game;
 	
 	final Frame frame;
+	Renderer renderer; // draws the canvas into the frame's buffers (null when Swing repaints it)
 	Graphics2D graphics;
 	final int rap,      // size of a cell
 			  width, height,
@@ -67,11 +88,15 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 			  smileyLen, stoneLen, cloudLen, killsLen; // number of indivudual images on each image
 	Image[] boundImages;
 	int[] smileyNbs; // image on each smiley
+	final Sprites sprites; // cells, smileys, clouds and stones already cut out at the size of a case
 	
 	// text
 	
 	final String fontName;
 	final Font font, titleFont, tallFont, textFont;
+	final Texts texts;          // texts already drawn, fonts and metrics (look up Texts)
+	final String[] infoTexts;   // texts of the values of the informations (look up valueText)
+	final int[] infoValues;
 	
 	/*
 	 * buttons
@@ -100,22 +125,58 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 	
 	final int lineSize;
 	
+	// changes (look up the top of the file)
+	BufferedImage screen;       // image of the canvas kept between two paints
+	volatile boolean redrawAll; // must the next paint draw everything?
+	int lastMode;               // what the last paint drew (look up mode)
+	final boolean[] redraw;     // redraw[x * height + y]: is the case drawn again by this paint?
+	int[] overlays;             // cases of the capsule, its landing point and the dying cells at the last paint
+	int nbOverlays;
+	boolean lastBlocker;        // was the blocker drawn by the last paint?
+	final int[] hud, hudNow;    // values shown by the informations at the last paint and now
+	final Layer[] layers;       // layers[mode]: what doesn't change in the mode (null until it is used)
+	final int[] layerKey;       // values the layers depend on (look up layer)
+	Layer composing;            // layer being drawn (null otherwise)
+	int losses;                 // number of times the end screen was shown
+	
+	static final int MENU = 0, PAUSE = 1, LOST = 2, PLAYING = 3; // modes
+	
 	private static final long serialVersionUID = 4L;
 	
 	public Canvas(Game game, Frame frame) {
 		
+		this(game, frame, frame.rap, frame.boundSize, frame.width, frame.height, frame.background);
+		
+	}
+	
+	public Canvas(Game game, int rap) {
+		/*
+		 * Canvas without a window, with the same layout as in the frame. Drawn by calling paint with the
+		 * graphics of an image (benchmarks, screenshots, ...).
+		 * In:
+		 *  game: game
+		 *  rap: size of a case
+		 */
+		
+		this(game, null, rap, rap,
+				game.grid.width * rap + rap * 2, (game.grid.height + 2) * rap + rap * 3, Color.black);
+		
+	}
+	
+	private Canvas(Game game, Frame frame, int rap, int boundSize, int width, int height, Color background) {
+		
 		this.game = game;
 		
 		// adapting the window
 		this.frame = frame;
-		this.frame.add(this, BorderLayout.CENTER);
+		if (this.frame != null) this.frame.add(this, BorderLayout.CENTER);
 		
-		this.rap = this.frame.rap;
-		this.boundSize = this.frame.boundSize;
-		this.width = this.frame.width;
-		this.height = this.frame.height;
+		this.rap = rap;
+		this.boundSize = boundSize;
+		this.width = width;
+		this.height = height;
 		this.lvlWidth = Math.round(this.game.grid.width * this.rap / this.game.lvlButMax);
-		this.background = this.frame.background;
+		this.background = background;
 		
 		Dimension dim = new Dimension(this.width, this.height);
 		this.setSize(dim);
@@ -125,9 +186,11 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 		this.setVisible(true);
 		
-		this.frame.addKeyListener(this);
-		this.addMouseListener(this);
-		this.addMouseListener(this.frame); this.addMouseMotionListener(this.frame);
+		if (this.frame != null) {
+			this.frame.addKeyListener(this);
+			this.addMouseListener(this);
+			this.addMouseListener(this.frame); this.addMouseMotionListener(this.frame);
+		}
 		
 		// boundaries
 		this.xMinO = this.boundSize;
@@ -165,7 +228,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 		// images
 		
-		this.rnd = new Random(); // used to generate random smileys and similar stuff
+		this.rnd = new Random(); // used to generate random smileys and similar stuff (only visuals, never the game's streams)
 		
 		/*
 		 * importing every image
@@ -224,12 +287,18 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		this.cloudLen  = 3;
 		this.stoneLen  = 1;
 		
+		this.sprites = new Sprites(this.rap, this.imageSize, this.cellImages, this.smileyImages,
+				this.smileyKilledImages, this.cloudImages, this.stoneImages);
+		
 		// text
 		this.fontName  = "Sylfaen";
 		this.font      = new Font(this.fontName, Font.BOLD, Math.round(this.rap * 2 / 5));
 		this.titleFont = new Font(this.fontName, Font.BOLD, this.rap);
 		this.tallFont  = new Font(this.fontName, Font.BOLD, Math.round(this.rap * 2 / 3));
 		this.textFont  = new Font(this.fontName, Font.PLAIN, Math.round(this.rap / 2));
+		this.texts = new Texts(this.sprites.gc);
+		this.infoTexts = new String[4];
+		this.infoValues = new int[4];
 		
 		// buttons
 		// this.butLen   = 7 + this.game.lvlButMax;
@@ -245,43 +314,366 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 		this.lineSize = this.rap * 2 / 3;
 		
+		// changes
+		this.screen = null;
+		this.redrawAll = true;
+		this.lastMode = - 1;
+		this.redraw = new boolean[this.game.grid.width * this.game.grid.height];
+		this.overlays = new int[8];
+		this.nbOverlays = 0;
+		this.lastBlocker = false;
+		this.hud = new int[11];
+		this.hudNow = new int[11];
+		this.layers = new Layer[4];
+		this.layerKey = new int[4];
+		this.composing = null;
+		this.losses = 0;
+		
 	}
 	
 	@Override
 	public void paint(Graphics g) {
 		/*
-		 * Function called every time the canvas is repainted. Draws everything again.
+		 * Function called every time the canvas is repainted. Draws what changed since the last time into
+		 * this.screen (everything if needed), then copies it to g.
 		 */
 		
-		this.graphics = (Graphics2D) g;
+		Timings tm = this.game.timings;
+		long t = tm != null? System.nanoTime() : 0;
+		PaintEvent pe = new PaintEvent();
+		pe.begin();
 		
-		// remove everything
-		this.graphics.clearRect(0, 0, this.width, this.height);
+		if (this.screen == null) this.screen = this.newImage();
+		this.graphics = this.screen.createGraphics();
+		this.graphics.setBackground(this.background);
 		
-		// background
-		this.drawBackground();
+		int mode = this.mode();
+		if (mode == Canvas.LOST && this.lastMode != Canvas.LOST) this.losses += 1;
+		boolean all = this.redrawAll || mode != Canvas.PLAYING || mode != this.lastMode;
+		this.redrawAll = false;
+		int n = all? this.drawAll(mode) : this.drawChanges();
+		this.lastMode = mode;
 		
-		// boundaries
-		this.drawBoundaries(this.game.generating || this.game.onGoing || this.game.lost || this.game.pausing);
-		// might move it to the drawMenu and drawGame functions and remove the dynamic boolean thing
+		// end
+		this.graphics.dispose();
+		g.drawImage(this.screen, 0, 0, this);
+		
+		if (tm != null) tm.paint.since(t);
+		if (pe.shouldCommit()) {
+			pe.inGame = ! this.game.starting;
+			pe.full = all;
+			pe.cases = n;
+			pe.width = this.width;
+			pe.height = this.height;
+			pe.commit();
+		}
+		
+	}
+	
+	private BufferedImage newImage() {
+		/*
+		 * Returns an opaque image of the size of the canvas, in the pixel format of the screen if there is one.
+		 */
+		
+		GraphicsConfiguration gc = this.getGraphicsConfiguration();
+		if (gc == null) gc = this.sprites.gc;
+		
+		return gc != null? gc.createCompatibleImage(this.width, this.height)
+				: new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+		
+	}
+	
+	private int mode() {
+		/*
+		 * Returns what is drawn: the menu, the pause, the end screen or the game being played.
+		 */
+		
+		if (this.game.starting) return Canvas.MENU;
+		if (this.game.pausing && ! this.game.generating) return Canvas.PAUSE;
+		if (this.game.lost) return Canvas.LOST;
+		
+		return Canvas.PLAYING;
+		
+	}
+	
+	private int drawAll(int mode) {
+		/*
+		 * Draws everything into this.screen and remembers what was drawn for the next paint. Returns the
+		 * number of cases of the grid.
+		 * In:
+		 *  mode: what is drawn (look up mode)
+		 */
 		
 		if (this.butLen == 0)
 			this.butLen = 7 + this.game.lvlButMax;
 		if (this.buttons == null)
 			this.buttons = new int[this.butLen][6];
 		
+		// what doesn't change in this state
+		Layer layer = this.layer(mode);
+		this.graphics.drawImage(layer.image, 0, 0, this);
+		layer.replay(this.buttons);
+		
+		// the rest
+		switch (mode) {
+		case Canvas.PLAYING:
+			this.graphics.setColor(Color.BLACK);
+			this.drawGame();
+			break;
+		case Canvas.PAUSE:
+			this.graphics.setColor(Color.BLACK);
+			this.drawInfos();
+			break;
+		}
+		
+		// everything is up to date
+		this.game.grid.takeDirty(this.redraw);
+		this.nbOverlays = 0;
+		if (mode == Canvas.PLAYING) this.collectOverlays();
+		Arrays.fill(this.redraw, false);
+		this.lastBlocker = this.blockerOn();
+		this.hudChanged();
+		
+		return this.redraw.length;
+		
+	}
+	
+	private Layer layer(int mode) {
+		/*
+		 * Returns the layer of a mode, drawn again first if one of the values it depends on changed:
+		 *  0: is the middle boundary drawn?
+		 *  1, 2: number of buttons of the level selector and levels between them
+		 *  3: number of the end screen (the board under it is different every time)
+		 * In:
+		 *  mode: what is drawn (look up mode)
+		 */
+		
+		int[] key = this.layerKey;
+		key[0] = this.game.generating || this.game.onGoing || this.game.lost || this.game.pausing? 1 : 0;
+		key[1] = this.game.lvlButMax;
+		key[2] = this.game.lvlButStep;
+		key[3] = mode == Canvas.LOST? this.losses : 0;
+		
+		if (this.layers[mode] == null) this.layers[mode] = new Layer(this.newImage());
+		Layer layer = this.layers[mode];
+		if (layer.isValid(key)) return layer;
+		
+		layer.start(key);
+		Graphics2D screen = this.graphics;
+		this.graphics = layer.image.createGraphics();
+		this.graphics.setBackground(this.background);
+		this.composing = layer;
+		
+		// remove everything
+		this.graphics.clearRect(0, 0, this.width, this.height);
+		
+		// background
+		this.drawBackground();
+		
+		// boundaries
+		this.drawBoundaries(key[0] == 1);
+		
 		// exit button
 		this.drawButton(this.buttonExitImage, "",
 				this.width - this.rap / 2, 0, this.rap, this.rap, 0, true, 4);
 		
-		// start menu or game
-		if (this.game.starting)
+		switch (mode) {
+		case Canvas.MENU:
 			this.drawMenu();
-		else
+			break;
+		case Canvas.PAUSE:
+			this.drawPause();
+			break;
+		case Canvas.LOST:
 			this.drawGame();
+			break;
+		}
 		
-		// end
+		this.composing = null;
 		this.graphics.dispose();
+		this.graphics = screen;
+		
+		return layer;
+		
+	}
+	
+	private int drawChanges() {
+		/*
+		 * Draws again what changed since the last paint, over what is already in this.screen (look up the top
+		 * of the file). Only used while a game is being played. Returns the number of cases drawn again.
+		 */
+		
+		Grid grid = this.game.grid;
+		int h = grid.height;
+		
+		// cases to draw again
+		grid.takeDirty(this.redraw);
+		this.changeFaces();
+		for (int i = 0; i < this.nbOverlays; i++) this.redraw[this.overlays[i]] = true; // erasing the last ones
+		this.collectOverlays();
+		boolean blocker = this.blockerOn();
+		boolean drawBlocker = blocker && (! this.lastBlocker || this.blockerTouched());
+		if (drawBlocker || (this.lastBlocker && ! blocker)) this.markBlocker();
+		this.lastBlocker = blocker;
+		
+		// what is under the capsule and the rest
+		int n = 0;
+		for (int i = 0; i < this.redraw.length; i++) if (this.redraw[i]) {
+			this.redraw[i] = false;
+			this.drawCase(i / h, i % h);
+			n += 1;
+		}
+		
+		// on top of them
+		if (this.game.cells != null && this.game.smileys != null) {
+			this.drawCapsule();
+			this.drawDeaths();
+		}
+		if (drawBlocker) this.drawBlocker();
+		
+		// informations
+		if (this.hudChanged()) {
+			int x = this.xMinO, y = this.yMinO, w = this.xMaxO - this.xMinO, hh = this.yMinB - this.yMinO;
+			this.graphics.setClip(x, y, w, hh);
+			this.graphics.drawImage(this.layers[Canvas.PLAYING].image, x, y, x + w, y + hh, x, y, x + w, y + hh, this);
+			this.graphics.setColor(Color.BLACK);
+			this.drawInfos();
+			if (this.game.cells != null && this.game.smileys != null) this.drawNext();
+			this.graphics.setClip(null);
+		}
+		
+		return n;
+		
+	}
+	
+	private void drawCase(int x, int y) {
+		/*
+		 * Draws the background of the case (x, y) (from the layer of the game) and the cell, smiley or stone in it.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		int x1 = this.xMin + x * this.rap, y1 = this.yMin + y * this.rap;
+		this.graphics.drawImage(this.layers[Canvas.PLAYING].image,
+				x1, y1, x1 + this.rap, y1 + this.rap,
+				x1, y1, x1 + this.rap, y1 + this.rap, this);
+		
+		Cell c = this.game.grid.getElement(x, y);
+		if (c == null) return;
+		
+		if (c instanceof Smiley)
+			this.drawImageObject(1, x, y, c.getColor(), c.getSlot());
+		else if (c instanceof Stone)
+			this.drawImageObject(2, x, y, 1, false, false, false, false);
+		else
+			this.drawImageObject(0, x, y, c.getColor(), c.isFused(), c.isTl(), c.isHori(), false);
+		
+	}
+	
+	private void collectOverlays() {
+		/*
+		 * Puts the cases of the capsule, of its landing point and of the cells that just died in this.overlays
+		 * and marks them to be drawn again.
+		 */
+		
+		this.nbOverlays = 0;
+		
+		Capsule cap = this.game.curCap; // read once, the game thread can end it meanwhile
+		if (cap != null && ! this.game.generating) {
+			int x = cap.x, y = cap.y;
+			int x2 = x, y2 = y;
+			if (cap.hori) x2 += 1;
+			else                       y2 += 1;
+			this.addOverlay(x, y);
+			this.addOverlay(x2, y2);
+			int ly = cap.getLandingPoint();
+			this.addOverlay(x, ly);
+			this.addOverlay(x2, cap.hori? ly : ly + 1);
+		}
+		
+		int[][] deaths = this.game.lastDeaths;
+		if (this.game.deletingCells && deaths != null)
+			for (int[] i: deaths) if (i[2] != 0) this.addOverlay(i[0], i[1]);
+		
+	}
+	
+	private void addOverlay(int x, int y) {
+		/*
+		 * Adds the case (x, y) to this.overlays and marks it, if it is on the grid.
+		 * In:
+		 *  x, y: coordinates
+		 */
+		
+		Grid grid = this.game.grid;
+		if (x < 0 || y < 0 || x >= grid.width || y >= grid.height) return;
+		
+		if (this.nbOverlays == this.overlays.length)
+			this.overlays = Arrays.copyOf(this.overlays, 2 * this.overlays.length);
+		int i = x * grid.height + y;
+		this.overlays[this.nbOverlays] = i;
+		this.nbOverlays += 1;
+		this.redraw[i] = true;
+		
+	}
+	
+	private boolean blockerOn() {
+		
+		return this.game.eh != null && this.game.eh.isActive && this.game.eh.blockerOn;
+		
+	}
+	
+	private boolean blockerTouched() {
+		/*
+		 * Returns if a case under the blocker is going to be drawn again.
+		 */
+		
+		EventHandler eh = this.game.eh;
+		int h = this.game.grid.height;
+		for (int x = eh.blockerX; x < eh.blockerX + eh.blockerWidth; x++)
+			for (int y = eh.blockerY; y < eh.blockerY + eh.blockerHeight; y++)
+				if (this.redraw[x * h + y]) return true;
+		
+		return false;
+		
+	}
+	
+	private void markBlocker() {
+		/*
+		 * Marks every case under the blocker to be drawn again.
+		 */
+		
+		EventHandler eh = this.game.eh;
+		int h = this.game.grid.height;
+		for (int x = eh.blockerX; x < eh.blockerX + eh.blockerWidth; x++)
+			for (int y = eh.blockerY; y < eh.blockerY + eh.blockerHeight; y++)
+				this.redraw[x * h + y] = true;
+		
+	}
+	
+	private boolean hudChanged() {
+		/*
+		 * Returns if one of the values shown by the informations changed since the last call.
+		 */
+		
+		int[] v = this.hudNow;
+		v[0] = Math.round(this.game.timeSpent / 1000); // the timer shows seconds
+		v[1] = this.game.score;
+		v[2] = this.game.level;
+		v[3] = this.game.smileysLeft;
+		v[4] = this.game.upComingC0;
+		v[5] = this.game.upComingC1;
+		EventHandler eh = this.game.eh;
+		boolean on = eh != null && eh.isActive;
+		v[6] = on? 1 : 0;
+		v[7] = on? eh.state : 0;
+		v[8] = on? eh.counter : 0;
+		v[9] = on? eh.counterTot : 0;
+		v[10] = on? Arrays.hashCode(eh.events) : 0;
+		
+		if (Arrays.equals(v, this.hud)) return false;
+		
+		System.arraycopy(v, 0, this.hud, 0, v.length);
+		return true;
 		
 	}
 	
@@ -402,7 +794,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		 *  y: y level (without adaptation using this.lineSize)
 		 */
 		
-		FontMetrics fm = this.graphics.getFontMetrics();
+		FontMetrics fm = this.texts.metrics(this.graphics.getFont());
 		this.drawCenteredString(text, fm, y);
 		
 	}
@@ -416,7 +808,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		 *  y: y level (without adaptation using this.rap)
 		 */
 		
-		this.graphics.drawString(text, this.centerX - fm.stringWidth(text) / 2, this.yMinO + this.lineSize * (y + 1));
+		this.drawText(text, this.centerX - fm.stringWidth(text) / 2, this.yMinO + this.lineSize * (y + 1));
 		
 	}
 	
@@ -453,8 +845,8 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		this.graphics.drawImage(bg, x - width / 2, y, width, height, this);
 		
 		this.graphics.setColor(Color.BLACK);
-		this.graphics.setFont(new Font(this.fontName, Font.BOLD, textHeight));
-		this.graphics.drawString(text, x - this.graphics.getFontMetrics().stringWidth(text) / 2, y + textHeight);
+		this.graphics.setFont(this.texts.font(this.fontName, Font.BOLD, textHeight));
+		this.drawText(text, x - this.texts.metrics(this.graphics.getFont()).stringWidth(text) / 2, y + textHeight);
 		
 		int[] r = new int[] {active? 1 : 0, x - width / 2, y, x + width / 2, y + height, type};
 		// this button hadn't been created yet
@@ -464,6 +856,8 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		else
 			for (int i = 0; i < this.buttons[0].length; i++)
 				if (this.buttons[index][i] != r[i]) this.buttons[index][i] = r[i];
+		// drawn into a layer: given again every time the layer is used
+		if (this.composing != null) this.composing.record(index, r);
 		
 	}
 	
@@ -513,26 +907,13 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 		else {
 		
-			/*
-			 * change the smiley's faces randomly
-			 * there is a 1/8 chance a smiley will change face every time the canvas is refreshed
-			 */
-			for (int i = 0; i < this.smileyNbs.length; i++)
-				if (i < this.game.smileys.length)
-					if (this.game.smileys[i] != null || i == 0 || i == 1) // the first two elements could be useful to update for the sun event
-						if (this.rnd.nextInt(8) == 0)
-							this.smileyNbs[i] = this.rnd.nextInt(this.smileyLen);
+			this.changeFaces();
 			
 			// cells
 			this.drawCells();
 			
 			// blocker
-			if (this.game.eh != null) if (this.game.eh.isActive && this.game.eh.blockerOn) {
-				int bX = this.game.eh.blockerX; int bY = this.game.eh.blockerY;
-				this.drawImage(this.blockerImage,
-						bX * this.rap, bY * this.rap, (bX + this.game.eh.blockerWidth) * this.rap, (bY + this.game.eh.blockerHeight) * this.rap,
-						0, 0, this.blockerSize, this.blockerSize);
-			}
+			if (this.blockerOn()) this.drawBlocker();
 			
 			// end-screen
 			if (this.game.lost)
@@ -542,16 +923,44 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 	}
 	
+	private void changeFaces() {
+		/*
+		 * Changes the smiley's faces randomly and marks the ones that changed to be drawn again.
+		 * There is a 1/8 chance a smiley will change face every time the canvas is refreshed.
+		 */
+		
+		Smiley s;
+		int h = this.game.grid.height;
+		for (int i = 0; i < this.smileyNbs.length; i++)
+			if (i < this.game.smileys.length)
+				if (this.game.smileys[i] != null || i == 0 || i == 1) // the first two elements could be useful to update for the sun event
+					if (this.rnd.nextInt(8) == 0) {
+						this.smileyNbs[i] = this.rnd.nextInt(this.smileyLen);
+						s = this.game.smileys[i];
+						if (s != null) this.redraw[s.getX() * h + s.getY()] = true;
+					}
+		
+	}
+	
+	private void drawBlocker() {
+		
+		int bX = this.game.eh.blockerX; int bY = this.game.eh.blockerY;
+		this.drawImage(this.blockerImage,
+				bX * this.rap, bY * this.rap, (bX + this.game.eh.blockerWidth) * this.rap, (bY + this.game.eh.blockerHeight) * this.rap,
+				0, 0, this.blockerSize, this.blockerSize);
+		
+	}
+	
 	private void drawPause() {
 		
 		this.graphics.setColor(Color.GRAY);
 		this.graphics.fillRect(this.xMin, this.yMin, this.game.grid.width * this.rap, this.game.grid.height * this.rap);
 		
 		this.graphics.setFont(this.titleFont);
-		FontMetrics fm = this.graphics.getFontMetrics();
+		FontMetrics fm = this.texts.metrics(this.graphics.getFont());
 		this.graphics.setColor(Color.BLACK);
 		String str = "Pause";
-		this.graphics.drawString(str, this.centerX - fm.stringWidth(str) / 2, this.centerY - this.rap);
+		this.drawText(str, this.centerX - fm.stringWidth(str) / 2, this.centerY - this.rap);
 		
 		this.drawButton("Resume", this.centerX, this.centerY, this.butWidth, this.rap, 4, true, 3);
 		this.drawButton("Title screen", this.centerX, this.centerY + this.rap, this.butWidth, this.rap, 5, true, 2);
@@ -564,10 +973,10 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 				0, 0, 1, 1);
 		
 		this.graphics.setFont(this.titleFont);
-		FontMetrics fm = this.graphics.getFontMetrics();
+		FontMetrics fm = this.texts.metrics(this.graphics.getFont());
 		String str = "You lost!";
 		
-		this.graphics.drawString(str, this.centerX - fm.stringWidth(str) / 2, this.centerY - this.rap);
+		this.drawText(str, this.centerX - fm.stringWidth(str) / 2, this.centerY - this.rap);
 		
 		this.drawButton("Title screen", this.centerX, this.centerY + this.rap / 2, this.butWidth, this.rap * 4 / 3,
 				5, true, 2);
@@ -584,37 +993,54 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		String str;
 		int textY;
 		int decToBounds = this.rap / 3;
-		FontMetrics fm = this.graphics.getFontMetrics();
+		FontMetrics fm = this.texts.metrics(this.graphics.getFont());
 		
 		textY = this.rap * 3 / 2;
 		
 		// timer
-		this.graphics.drawString("time", this.rap + decToBounds, textY);
-		str = this.formatTimeSpent(this.game.timeSpent);
-		this.graphics.drawString(str, this.game.grid.width / 2 * this.rap - fm.stringWidth(str) - decToBounds, textY);
+		this.drawText("time", this.rap + decToBounds, textY);
+		str = this.valueText(0, Math.round(this.game.timeSpent / 1000));
+		this.drawText(str, this.game.grid.width / 2 * this.rap - fm.stringWidth(str) - decToBounds, textY);
 		
 		// score
-		this.graphics.drawString("score", (this.game.grid.width / 2 + 2) * this.rap + decToBounds, textY);
-		str = String.valueOf(this.game.score);
-		this.graphics.drawString(str, (this.game.grid.width + 1) * this.rap - fm.stringWidth(str) - decToBounds, textY);
+		this.drawText("score", (this.game.grid.width / 2 + 2) * this.rap + decToBounds, textY);
+		str = this.valueText(1, this.game.score);
+		this.drawText(str, (this.game.grid.width + 1) * this.rap - fm.stringWidth(str) - decToBounds, textY);
 		
 		textY = this.rap * 2;
 		
 		// level
-		this.graphics.drawString("level", this.rap + decToBounds, textY);
-		str = String.valueOf(this.game.level);
-		this.graphics.drawString(str, this.game.grid.width / 2 * this.rap - fm.stringWidth(str) - decToBounds, textY);
+		this.drawText("level", this.rap + decToBounds, textY);
+		str = this.valueText(2, this.game.level);
+		this.drawText(str, this.game.grid.width / 2 * this.rap - fm.stringWidth(str) - decToBounds, textY);
 		
 		// smileys
-		this.graphics.drawString("smileys", (this.game.grid.width / 2 + 2) * this.rap + decToBounds, textY);
-		str = String.valueOf(this.game.smileysLeft);
-		this.graphics.drawString(str, (this.game.grid.width + 1) * this.rap - fm.stringWidth(str) - decToBounds, textY);
+		this.drawText("smileys", (this.game.grid.width / 2 + 2) * this.rap + decToBounds, textY);
+		str = this.valueText(3, this.game.smileysLeft);
+		this.drawText(str, (this.game.grid.width + 1) * this.rap - fm.stringWidth(str) - decToBounds, textY);
 		
 		// events
 		if (this.game.eh != null) if (this.game.eh.isActive) this.drawEvents();
 		
 	}
 	
+	private String valueText(int i, int v) {
+		/*
+		 * Returns the text of a value of the informations, made again only if the value changed.
+		 * In:
+		 *  i: value (0: timer, in seconds; 1: score; 2: level; 3: smileys)
+		 *  v: value
+		 */
+		
+		if (this.infoTexts[i] == null || this.infoValues[i] != v) {
+			this.infoValues[i] = v;
+			this.infoTexts[i] = i == 0? this.formatTimeSpent(v * 1000f) : String.valueOf(v);
+		}
+		
+		return this.infoTexts[i];
+		
+	}
+	
 	private void drawEvents() {
 		/*
 		 * Draws the events and the timer bar.
@@ -684,87 +1110,114 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		// when the game is first initialized, game.cells and game.smileys are empty
 		if (this.game.cells != null && this.game.smileys != null) {
 			
-			// cells
-			for (Cell c: this.game.cells)
-				if (c != null)
-					this.drawImageObject(0, c.x, c.y, c.color, c.fused, c.tl, c.hori, false);
+			// cells (only the used spots of the arrays are read)
+			Cell c;
+			for (int i = 0; i < this.game.cellSlots.nbLive; i++) {
+				c = this.game.cells[this.game.cellSlots.live[i]];
+				if (c != null) // the game thread might be deleting it
+					this.drawImageObject(0, c.getX(), c.getY(), c.getColor(), c.isFused(), c.isTl(), c.isHori(), false);
+			}
 			
 			// smileys
 			Smiley s;
-			for (int i = 0; i < this.game.smileys.length; i++) {
-				s = this.game.smileys[i];
+			for (int i = 0; i < this.game.smileySlots.nbLive; i++) {
+				s = this.game.smileys[this.game.smileySlots.live[i]];
 				if (s != null)
-					this.drawImageObject(1, s.x, s.y, s.color, i);
+					this.drawImageObject(1, s.getX(), s.getY(), s.getColor(), s.getSlot());
 			}
 			
-			// capsule
+			// stones
+			if (this.game.eh != null) if (this.game.eh.isActive) if (this.game.eh.stones != null)
+				for (Stone st: this.game.eh.stones) if (st != null)
+					this.drawImageObject(2, st.getX(), st.getY(), 1, false, false, false, false);
 			
-			// temporary conditions
-			boolean ghostCond = false; // temporary condition in case the ghost event is active (true if it is)
-			if (this.game.eh != null) if (this.game.eh.isActive && this.game.eh.ghostOn)
-				ghostCond = true;
-			boolean sunCond = false;   // temporary condition in case the sun event is active (true if it is)
-			if (this.game.eh != null) if (this.game.eh.isActive && this.game.eh.sunOn)
-				sunCond = true;
-			// to still change the smiley's faces if the sun event is on, we draw the same face as the smileys in 0 and 1
+			this.drawCapsule();
+			this.drawDeaths();
+			this.drawNext();
+		
+		}
+		
+	}
+	
+	private void drawCapsule() {
+		/*
+		 * Draws the capsule and its landing point.
+		 */
+		
+		// temporary conditions
+		boolean ghostCond = false; // temporary condition in case the ghost event is active (true if it is)
+		if (this.game.eh != null) if (this.game.eh.isActive && this.game.eh.ghostOn)
+			ghostCond = true;
+		boolean sunCond = false;   // temporary condition in case the sun event is active (true if it is)
+		if (this.game.eh != null) if (this.game.eh.isActive && this.game.eh.sunOn)
+			sunCond = true;
+		// to still change the smiley's faces if the sun event is on, we draw the same face as the smileys in 0 and 1
+		
+		Capsule cap = this.game.curCap; // read once, the game thread can end it meanwhile
+		// drawing it
+		if (cap != null && (! ghostCond) && (! this.game.generating)) {
 			
-			// drawing it
-			if (this.game.curCap != null && (! ghostCond) && (! this.game.generating)) {
-				
-				// the first cell might be out of the grid
-				if (this.game.curCap.y != - 1) {
-					if (sunCond)
-						this.drawImageObject(1, this.game.curCap.x, this.game.curCap.y, this.game.curCap.c0, 0);
-					else
-						this.drawImageObject(0, this.game.curCap.x, this.game.curCap.y, this.game.curCap.c0,
-								true, true, this.game.curCap.hori, false);
-				}
-				
-				// coordinates of the second cell
-				int cap2X = this.game.curCap.x; int cap2Y = this.game.curCap.y;
-				if (this.game.curCap.hori) cap2X += 1;
-				else                       cap2Y += 1;
+			// the first cell might be out of the grid
+			if (cap.y != - 1) {
 				if (sunCond)
-					this.drawImageObject(1, cap2X, cap2Y, this.game.curCap.c1, 1);
+					this.drawImageObject(1, cap.x, cap.y, cap.c0, 0);
 				else
-					this.drawImageObject(0, cap2X, cap2Y, this.game.curCap.c1,
-							true, false, this.game.curCap.hori, false);
-				
-				// landing point
-				int capLY = this.game.curCap.landingPoint;
-				if (! this.game.curCap.hori) capLY += 1;
-				if (sunCond) {
-					this.drawImageObject(0, this.game.curCap.x, this.game.curCap.landingPoint, 9,
-							false, false, false, false);
-					this.drawImageObject(0, cap2X, capLY, 9,
-							false, false, false, false);
-				} else {
-					this.drawImageObject(0, this.game.curCap.x, this.game.curCap.landingPoint, 9,
-							true, true, this.game.curCap.hori, false);
-					this.drawImageObject(0, cap2X, capLY, 9,
-							true, false, this.game.curCap.hori, false);
-				}
-				
+					this.drawImageObject(0, cap.x, cap.y, cap.c0,
+							true, true, cap.hori, false);
 			}
 			
-			// cells that just died
-			if (this.game.deletingCells && this.game.lastDeaths != null)
-				for (int[] i: this.game.lastDeaths) if (i[2] != 0)
-					this.drawImageObject(i[3], i[0], i[1], i[2], false, false, false, true);
+			// coordinates of the second cell
+			int cap2X = cap.x; int cap2Y = cap.y;
+			if (cap.hori) cap2X += 1;
+			else                       cap2Y += 1;
+			if (sunCond)
+				this.drawImageObject(1, cap2X, cap2Y, cap.c1, 1);
+			else
+				this.drawImageObject(0, cap2X, cap2Y, cap.c1,
+						true, false, cap.hori, false);
 			
-			// next capsule
-			if (this.game.upComingC0 != 0 && this.game.upComingC1 != 0) {
-				this.drawImageObject(0, this.game.grid.width / 2 - 1, - 3, this.game.upComingC0,
-						true, true, true, false);
-				this.drawImageObject(0, this.game.grid.width / 2, - 3, this.game.upComingC1,
-						true, false, true, false);
+			// landing point (read from the grid every time, in case an event changed the board under the capsule)
+			int capLY0 = cap.getLandingPoint();
+			int capLY = capLY0;
+			if (! cap.hori) capLY += 1;
+			if (sunCond) {
+				this.drawImageObject(0, cap.x, capLY0, 9,
+						false, false, false, false);
+				this.drawImageObject(0, cap2X, capLY, 9,
+						false, false, false, false);
+			} else {
+				this.drawImageObject(0, cap.x, capLY0, 9,
+						true, true, cap.hori, false);
+				this.drawImageObject(0, cap2X, capLY, 9,
+						true, false, cap.hori, false);
 			}
 			
-			// stones
-			if (this.game.eh != null) if (this.game.eh.isActive) if (this.game.eh.stones != null)
-				for (Stone st: this.game.eh.stones) if (st != null)
-					this.drawImageObject(2, st.x, st.y, 1, false, false, false, false);
+		}
 		
+	}
+	
+	private void drawDeaths() {
+		/*
+		 * Draws the cells that just died.
+		 */
+		
+		int[][] deaths = this.game.lastDeaths;
+		if (this.game.deletingCells && deaths != null)
+			for (int[] i: deaths) if (i[2] != 0)
+				this.drawImageObject(i[3], i[0], i[1], i[2], false, false, false, true);
+		
+	}
+	
+	private void drawNext() {
+		/*
+		 * Draws the next capsule, above the grid.
+		 */
+		
+		if (this.game.upComingC0 != 0 && this.game.upComingC1 != 0) {
+			this.drawImageObject(0, this.game.grid.width / 2 - 1, - 3, this.game.upComingC0,
+					true, true, true, false);
+			this.drawImageObject(0, this.game.grid.width / 2, - 3, this.game.upComingC1,
+					true, false, true, false);
 		}
 		
 	}
@@ -777,7 +1230,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		 *  1: smiley
 		 *  2: stone
 		 * A smiley is drawn from a cell that isn't fused and has a random expression on.
-		 * The color is obtained by searching for the element in index: color - 2 in this.cellImages.
+		 * The color is obtained by searching for the element in index: color - 2 in cells.png (look up Sprites).
 		 * In:
 		 *  type: explained above
 		 *  x, y: coordinates
@@ -791,14 +1244,11 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 		/*
 		 * Coordinates:
-		 *  x1, y1: top-left coordinates on the canvas
-		 *  x2, y2: bottom-right coordinates on the canvas
-		 *  sx1, sy1: top-left coordinates on the image
-		 *  sx2, sy2: bottom-right coordinates on the image
+		 *  x1, y1: top-left coordinates in the grid (the sprites are already at the size of a case, look up
+		 *   Sprites)
 		 */
-		int x1, y1, x2, y2, sx1, sy1, sx2, sy2;
-		x1 = x * this.rap;       y1 = y * this.rap;
-		x2 = (x + 1) * this.rap; y2 = (y + 1) * this.rap;
+		int x1, y1;
+		x1 = x * this.rap; y1 = y * this.rap;
 		
 		switch (type) {
 		
@@ -814,20 +1264,14 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 			 *  To give my-self more flexibility and considering I am now importing every image at once, there are now five sprites for each
 			 *  color, two for the vertical capsule, two for the horizontal capsule and one for a lone cell.
 			 */
-			sx1 = (color - 2) * this.imageSize;
-			sy1 = (fused? 1 : 0) * (1 + (hori? 0 : 2) + (tl? 0 : 1)) * this.imageSize; // determines the row in cells.png
-			sx2 = sx1 + this.imageSize; sy2 = sy1 + this.imageSize;
+			int row = (fused? 1 : 0) * (1 + (hori? 0 : 2) + (tl? 0 : 1)); // determines the row in cells.png
 			// draw
-			this.drawImage(this.cellImages,
-					x1, y1, x2, y2,
-					sx1, sy1, sx2, sy2);
+			this.drawSprite(this.sprites.cell(color, row), x1, y1);
 			
 			// add clouds if the cell is deleting
 			int nsx = this.rnd.nextInt(this.cloudLen);
-			if (deleting)
-				this.drawImage(this.cloudImages,
-						x1, y1, x2, y2,
-						nsx * this.imageSize, 0, (nsx + 1) * this.imageSize, this.imageSize);
+			if (deleting && nsx < this.sprites.clouds.length)
+				this.drawSprite(this.sprites.clouds[nsx], x1, y1);
 			
 			break;
 		
@@ -836,33 +1280,24 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 			
 			this.drawImageObject(0, x, y, color, false, false, false, deleting);
 			
-			Image source; int face;
+			Image[] source; int face;
 			if (deleting) {
-				source = this.smileyKilledImages;
+				source = this.sprites.kills;
 				face   = this.rnd.nextInt(this.killsLen);
 			} else {
-				source = this.smileyImages;
+				source = this.sprites.smileys;
 				face = smileyNbs[ind];
 			}
 			
-			sx1 = face * this.imageSize; sx2 = sx1 + this.imageSize;
-			sy1 = 0; sy2 = this.imageSize;
-			
-			this.drawImage(source,
-					x1, y1, x2, y2,
-					sx1, sy1, sx2, sy2);
+			if (face < source.length) this.drawSprite(source[face], x1, y1);
 			
 			break;
 		
 		// stone
 		case 2:
 			
-			sx1 = this.rnd.nextInt(this.stoneLen) * this.imageSize; sx2 = sx1 + this.imageSize;
-			sy1 = 0; sy2 = this.imageSize;
-			
-			this.drawImage(this.stoneImages,
-					x1, y1, x2, y2,
-					sx1, sy1, sx2, sy2);
+			int stone = this.rnd.nextInt(this.stoneLen);
+			if (stone < this.sprites.stones.length) this.drawSprite(this.sprites.stones[stone], x1, y1);
 			
 			break;
 			
@@ -901,6 +1336,30 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 	}
 	
+	private void drawText(String str, int x, int y) {
+		/*
+		 * Draws str with the font and the color of the graphics, from the texts already drawn (look up Texts).
+		 * In:
+		 *  str: text
+		 *  x, y: position of the start of the baseline
+		 */
+		
+		this.texts.draw(this.graphics, str, x, y);
+		
+	}
+	
+	private void drawSprite(Image img, int x1, int y1) {
+		/*
+		 * Draws a sprite of Sprites (already at the size of a case) without scaling it.
+		 * In:
+		 *  img: sprite
+		 *  x1, y1: top-left coordinates in the grid, in pixels
+		 */
+		
+		this.graphics.drawImage(img, x1 + this.xMin, y1 + this.yMin, this);
+		
+	}
+	
 	private Image importImage(String src) throws IOException {
 		/*
 		 * Returns the corresponding image.
@@ -956,7 +1415,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		 */
 		
 		this.graphics.setFont(f);
-		return this.graphics.getFontMetrics();
+		return this.texts.metrics(this.graphics.getFont());
 		
 	}
 	
@@ -965,8 +1424,7 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		 * Resets the canvas.
 		 */
 		
-		if (this.graphics != null)
-			this.graphics.clearRect(0, 0, this.width, this.height);
+		this.redrawAll = true;
 		
 		this.smileyNbs = new int[this.game.numberSmileys(this.game.lvMax)];
 		for (int i = 0; i < this.smileyNbs.length; i++)
@@ -974,12 +1432,41 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 		
 	}
 	
+	public void startRendering() {
+		/*
+		 * Draws the canvas with its own thread, once per refresh of the screen, instead of Swing's repaints
+		 * (look up Renderer). Does nothing without a window.
+		 */
+		
+		if (this.frame == null || this.renderer != null) return;
+		
+		this.setIgnoreRepaint(true);
+		this.renderer = new Renderer(this, this.frame);
+		this.renderer.start();
+		
+	}
+	
+	@Override
+	public void repaint() {
+		/*
+		 * Asks for the canvas to be drawn again: at the next refresh with active rendering, by Swing otherwise.
+		 */
+		
+		if (this.renderer != null)
+			this.renderer.request();
+		else
+			super.repaint();
+		
+	}
+	
 	public void stop() {
 		/*
-		 * Stops the canvas. Called when the game is stopped (window closing).
+		 * Stops the canvas and the program. Called when the game is stopped (window closing).
 		 */
 		
-		this.frame.stop();
+		if (this.renderer != null) this.renderer.stop();
+		if (this.frame != null) this.frame.stop();
+		System.exit(0);
 		
 	}
 	
@@ -1035,11 +1522,21 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 	@Override
 	public void keyPressed(KeyEvent e) {
 		/*
-		 * Sends an input to the game object.
+		 * Sends an input to the game object, holding its loop like Session.input: the game only changes
+		 * between two frames, and the renderer never reads it while it changes.
 		 */
 		
 		int code = e.getKeyCode();
-		this.game.action(code);
+		
+		// F12 writes the timings of the frames, if they are measured (look up game.Timings)
+		if (code == KeyEvent.VK_F12 && this.game.timings != null) {
+			this.game.timings.dump(System.out);
+			return;
+		}
+		
+		synchronized (this.game.getLoop()) {
+			this.game.action(code);
+		}
 		
 	}
 
@@ -1069,7 +1566,9 @@ public class Canvas extends JPanel implements KeyListener, MouseListener {
 						addedData = (i[1] - this.boundSize) / this.lvlWidth;
 					else if (i[5] == 5)
 						addedData = i[1] < this.centerX? 0 : 1;
-					this.game.buttonPressed(i[5], addedData);
+					synchronized (this.game.getLoop()) { // look up keyPressed
+						this.game.buttonPressed(i[5], addedData);
+					}
 				}
 		
 	}
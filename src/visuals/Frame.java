@@ -9,13 +9,17 @@
 
 package visuals;
 
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.ImageCapabilities;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.awt.image.BufferStrategy;
 
 import game.Game;
 
@@ -68,6 +72,26 @@ public class Frame extends java.awt.Frame implements WindowListener, MouseListen
 
 	}
 	
+	public BufferStrategy createStrategy() {
+		/*
+		 * Makes the window drawn only by its owner (look up Renderer) and returns its buffers: two pages that
+		 * are flipped if the screen allows it, copied to the screen otherwise.
+		 * The window must be visible.
+		 */
+		
+		this.setIgnoreRepaint(true);
+		
+		try {
+			this.createBufferStrategy(2, new BufferCapabilities(new ImageCapabilities(true),
+					new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+		} catch (AWTException e) {
+			this.createBufferStrategy(2);
+		}
+		
+		return this.getBufferStrategy();
+		
+	}
+	
 	public void stop() {
 		/*
 		 * Stops the frame. Called when the game is stopped (window closing).
@@ -0,0 +1,95 @@
+/*
+ * Image of the parts of the canvas that don't change while the game stays in one state (look up
+ * Canvas.mode): the background, the boundaries, the exit button and, depending on the state, the whole menu,
+ * the pause screen or the end screen. It is drawn once, then copied at the start of every full paint.
+ * 
+ * The layer is drawn again only when its key changes (the values the drawing depends on, look up
+ * Canvas.layerKey).
+ * Drawing a button also tells the canvas where it is and makes it active (look up Canvas.drawButton), so the
+ * buttons drawn into the layer are remembered and given again to the canvas every time the layer is used.
+ * 
+ * Libraries:
+ *  java.util
+ *  java.awt
+ */
+
+package visuals;
+
+import java.util.Arrays;
+
+import java.awt.image.BufferedImage;
+
+public class Layer {
+	
+	final BufferedImage image;
+	int[] key; // values the image was drawn with (null if it was never drawn)
+	
+	int[][] buttons; // buttons[i]: index of a button in Canvas.buttons, then its values
+	int nbButtons;
+	
+	public Layer(BufferedImage image) {
+		
+		this.image = image;
+		this.key = null;
+		this.buttons = new int[4][];
+		this.nbButtons = 0;
+		
+	}
+	
+	public boolean isValid(int[] key) {
+		/*
+		 * Returns if the image was drawn with key.
+		 * In:
+		 *  key: values the drawing depends on
+		 */
+		
+		return Arrays.equals(this.key, key);
+		
+	}
+	
+	public void start(int[] key) {
+		/*
+		 * Forgets the buttons before the image is drawn again with key.
+		 * In:
+		 *  key: values the drawing depends on (copied)
+		 */
+		
+		this.key = key.clone();
+		this.nbButtons = 0;
+		
+	}
+	
+	public void record(int index, int[] button) {
+		/*
+		 * Remembers a button drawn into the image.
+		 * In:
+		 *  index: index of the button in Canvas.buttons
+		 *  button: values of the button (look up Canvas.buttons)
+		 */
+		
+		if (this.nbButtons == this.buttons.length)
+			this.buttons = Arrays.copyOf(this.buttons, 2 * this.buttons.length);
+		
+		int[] b = new int[button.length + 1];
+		b[0] = index;
+		System.arraycopy(button, 0, b, 1, button.length);
+		this.buttons[this.nbButtons] = b;
+		this.nbButtons += 1;
+		
+	}
+	
+	public void replay(int[][] buttons) {
+		/*
+		 * Gives the buttons drawn into the image to the canvas again, as if they had just been drawn.
+		 * In:
+		 *  buttons: buttons of the canvas
+		 */
+		
+		for (int i = 0; i < this.nbButtons; i++) {
+			int[] b = this.buttons[i];
+			System.arraycopy(b, 1, buttons[b[0]], 0, b.length - 1);
+		}
+		
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Active rendering of the canvas: instead of asking Swing to repaint it (repaint -> paint on the event
+ * thread, whenever Swing decides to), a thread of its own draws the canvas into the frame's buffer strategy
+ * and shows it, once per refresh of the screen:
+ *  - the game asks for a new image with request (Canvas.repaint, from the loop's thread or the key handlers)
+ *  - at the next refresh, the canvas is drawn into the back buffer and the buffers are flipped
+ *  - if nothing was asked, nothing is drawn and the thread sleeps until the next refresh
+ * Many requests between two refreshes make one image, so a cascade that changes the board faster than the
+ * screen costs one drawing per refresh, and an image is never shown while it is being drawn (no tearing).
+ * The canvas is drawn holding the game's loop, and everything that changes the game holds it too (the frames
+ * and the tasks of the loop, the keys and the clicks of the canvas), so the game never changes while it is
+ * read.
+ * If drawing fails, the error is printed once, and the image is tried again later and later (up to once a
+ * second) until drawing works again.
+ * 
+ * Libraries:
+ *  java.util
+ *  java.awt
+ */
+
+package visuals;
+
+import java.util.concurrent.locks.LockSupport;
+
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowListener;
+import java.awt.image.BufferStrategy;
+
+public class Renderer implements Runnable, WindowListener {
+	
+	final Canvas can;
+	final Frame frame;
+	final BufferStrategy strategy;
+	final Object lock; // the game's loop (look up Game.getLoop)
+	
+	public final long period; // time between two refreshes of the screen, in nanoseconds
+	
+	Thread thread;
+	volatile boolean running,
+					 requested; // was a new image asked since the last one was drawn?
+	
+	public long shown; // number of images shown
+	int failures;      // number of drawings that failed in a row
+	long retryAt;      // time before which a failed drawing isn't tried again
+	
+	public Renderer(Canvas can, Frame frame) {
+		/*
+		 * The frame must already be visible (look up Frame.createStrategy).
+		 * In:
+		 *  can: canvas to draw
+		 *  frame: window that contains it
+		 */
+		
+		this.can = can;
+		this.frame = frame;
+		this.strategy = frame.createStrategy();
+		this.lock = can.game.getLoop();
+		
+		// the refresh rate isn't always known (60 Hz then)
+		int hz = DisplayMode.REFRESH_RATE_UNKNOWN;
+		if (frame.getGraphicsConfiguration() != null)
+			hz = frame.getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+		if (hz == DisplayMode.REFRESH_RATE_UNKNOWN) hz = 60;
+		this.period = 1_000_000_000L / hz;
+		
+		this.running = false;
+		this.requested = true;
+		this.shown = 0;
+		this.failures = 0;
+		this.retryAt = 0;
+		
+		// the window must be drawn again after it was hidden
+		frame.addWindowListener(this);
+		
+	}
+	
+	public void start() {
+		/*
+		 * Starts the thread that draws the canvas.
+		 */
+		
+		this.running = true;
+		this.thread = new Thread(this, "render");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		
+	}
+	
+	public void request() {
+		/*
+		 * Asks for a new image at the next refresh.
+		 */
+		
+		this.requested = true;
+		
+	}
+	
+	@Override
+	public void run() {
+		/*
+		 * Render loop: one image per refresh at most, only when one was asked.
+		 */
+		
+		long next = System.nanoTime();
+		while (this.running) {
+			
+			if (this.requested && System.nanoTime() >= this.retryAt) {
+				this.requested = false;
+				try {
+					this.render();
+					if (this.failures != 0) {
+						System.err.println("render: drawing works again after " + this.failures + " failures");
+						this.failures = 0;
+					}
+				} catch (RuntimeException e) {
+					// the thread must not die, the window wouldn't be drawn anymore
+					this.failures += 1;
+					if (this.failures == 1) e.printStackTrace(); // the next ones are most likely the same
+					// trying again twice as late after every failure, a second later at most
+					long wait = Math.min(1_000_000_000L, this.period << Math.min(this.failures, 16));
+					this.retryAt = System.nanoTime() + wait;
+					this.can.redrawAll = true;
+					this.requested = true;
+				}
+			}
+			
+			// sleeping until the next refresh (from now if this one was missed, so it isn't caught up)
+			next += this.period;
+			long now = System.nanoTime();
+			if (next < now) next = now + this.period;
+			LockSupport.parkNanos(next - now);
+			
+		}
+		
+	}
+	
+	private void render() {
+		/*
+		 * Draws the canvas into the back buffer and shows it.
+		 * The buffers can be lost (the screen changed, the window was minimized, ...); the image is then drawn
+		 * again.
+		 */
+		
+		do {
+			do {
+				Graphics g = this.strategy.getDrawGraphics();
+				try {
+					g.translate(this.can.getX(), this.can.getY());
+					synchronized (this.lock) {
+						if (! this.running) return; // stopped while waiting for the loop (look up stop)
+						this.can.paint(g);
+					}
+				} finally {
+					g.dispose();
+				}
+			} while (this.strategy.contentsRestored());
+			
+			this.strategy.show();
+			Toolkit.getDefaultToolkit().sync(); // some systems (X11) wait to send the image otherwise
+			
+		} while (this.strategy.contentsLost());
+		
+		this.shown += 1;
+		
+	}
+	
+	public void stop() {
+		/*
+		 * Stops the thread (after the image it is drawing) and frees the buffers.
+		 */
+		
+		this.running = false;
+		if (this.thread != null) {
+			LockSupport.unpark(this.thread);
+			try {
+				this.thread.join(1000); // it could be waiting for the loop, held by the caller
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.strategy.dispose();
+		
+	}
+	
+	@Override
+	public void windowOpened(WindowEvent e) {
+		
+		this.request();
+		
+	}
+	
+	@Override
+	public void windowClosing(WindowEvent e) {}
+	
+	@Override
+	public void windowClosed(WindowEvent e) {}
+	
+	@Override
+	public void windowIconified(WindowEvent e) {}
+	
+	@Override
+	public void windowDeiconified(WindowEvent e) {
+		
+		this.request();
+		
+	}
+	
+	@Override
+	public void windowActivated(WindowEvent e) {
+		
+		this.request();
+		
+	}
+	
+	@Override
+	public void windowDeactivated(WindowEvent e) {}
+
+}
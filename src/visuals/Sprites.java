@@ -0,0 +1,126 @@
+/*
+ * Sprites of the cells, smileys, clouds and stones, cut out of their sheets once and already at the size of a
+ * case, so that drawing one is a copy of the whole image without any scaling.
+ * The images are made compatible with the screen (same pixel format), so Java2D can keep them in video memory
+ * and copy them with the graphics card. Without a screen (benchmarks, ...) they are plain images.
+ * 
+ * Sheets (every sprite is imageSize x imageSize pixels):
+ *  cells.png:   one column per color (2 to 9, look up game.Grid), one row per look:
+ *                0: lone cell
+ *                1: horizontal pair, left cell     2: horizontal pair, right cell
+ *                3: vertical pair, top cell        4: vertical pair, bottom cell
+ *  smileys.png: one face per column (drawn over a lone cell)
+ *  kills.png:   one face per column, for the smileys that are being deleted
+ *  clouds.png:  one cloud per column, over the cells that are being deleted
+ *  stones.png:  one stone per column
+ * 
+ * Libraries:
+ *  java.awt
+ */
+
+package visuals;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+public class Sprites {
+	
+	final GraphicsConfiguration gc; // screen the images are made for (null without a screen)
+	final int size,                 // size of a case, in pixels
+			  imageSize;            // size of a sprite in the sheets
+	
+	final Image[][] cells; // cells[color - 2][row]: row as in cells.png
+	final Image[] smileys, kills, clouds, stones;
+	
+	public Sprites(int size, int imageSize, Image cellImages, Image smileyImages, Image smileyKilledImages,
+			Image cloudImages, Image stoneImages) {
+		/*
+		 * Cuts every sprite out of the sheets. A sheet that couldn't be read (null) gives no sprites.
+		 * In:
+		 *  size: size of a case
+		 *  imageSize: size of a sprite in the sheets
+		 *  (others): sheets
+		 */
+		
+		this.gc = GraphicsEnvironment.isHeadless()? null
+				: GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		this.size = size;
+		this.imageSize = imageSize;
+		
+		int colors = this.columns(cellImages);
+		this.cells = new Image[colors][];
+		for (int c = 0; c < colors; c++) {
+			this.cells[c] = new Image[5];
+			for (int r = 0; r < 5; r++) this.cells[c][r] = this.slice(cellImages, c, r);
+		}
+		
+		this.smileys = this.row(smileyImages);
+		this.kills   = this.row(smileyKilledImages);
+		this.clouds  = this.row(cloudImages);
+		this.stones  = this.row(stoneImages);
+		
+	}
+	
+	public Image cell(int color, int row) {
+		/*
+		 * Returns the sprite of a cell (null if there is none).
+		 * In:
+		 *  color: color (look up game.Grid)
+		 *  row: look (look up the top of the file)
+		 */
+		
+		int c = color - 2;
+		if (c < 0 || c >= this.cells.length) return null;
+		
+		return this.cells[c][row];
+		
+	}
+	
+	private int columns(Image sheet) {
+		/*
+		 * Returns the number of sprites on a row of sheet (0 if it is null).
+		 */
+		
+		if (sheet == null) return 0;
+		
+		return sheet.getWidth(null) / this.imageSize;
+		
+	}
+	
+	private Image[] row(Image sheet) {
+		/*
+		 * Returns every sprite of the first row of sheet.
+		 */
+		
+		Image[] r = new Image[this.columns(sheet)];
+		for (int i = 0; i < r.length; i++) r[i] = this.slice(sheet, i, 0);
+		
+		return r;
+		
+	}
+	
+	private Image slice(Image sheet, int col, int row) {
+		/*
+		 * Returns a copy of one sprite of sheet, scaled to the size of a case the same way drawImage scales it.
+		 * In:
+		 *  sheet: sheet
+		 *  col, row: position of the sprite in the sheet, in sprites
+		 */
+		
+		BufferedImage img = this.gc != null? this.gc.createCompatibleImage(this.size, this.size, Transparency.TRANSLUCENT)
+				: new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_ARGB);
+		
+		int sx = col * this.imageSize, sy = row * this.imageSize;
+		Graphics2D g = img.createGraphics();
+		g.drawImage(sheet, 0, 0, this.size, this.size, sx, sy, sx + this.imageSize, sy + this.imageSize, null);
+		g.dispose();
+		
+		return img;
+		
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Cache of the texts drawn by the canvas, and of the fonts and font metrics they use.
+ * A text is drawn once into a transparent image the first time it is shown with a font; the next times, the
+ * image is copied instead of laying out the glyphs again. Only the texts that change (the score, the timer,
+ * ...) are drawn again, once for each new value.
+ * 
+ * Each font keeps at most maxTexts texts; the one that wasn't used for the longest time is forgotten first
+ * (the timer shows a new text every second).
+ * 
+ * Libraries:
+ *  java.util
+ *  java.awt
+ */
+
+package visuals;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+public class Texts {
+	
+	public static final int maxTexts = 256;
+	
+	final GraphicsConfiguration gc; // screen the images are made for (null without a screen)
+	final Graphics2D scratch;       // graphics the metrics are read from (same settings as the canvas')
+	
+	final HashMap<String, Font> fonts;               // fonts made by font, by name, style and size
+	final HashMap<Font, FontMetrics> metrics;
+	final HashMap<Font, LinkedHashMap<String, Text>> texts;
+	
+	public Texts(GraphicsConfiguration gc) {
+		
+		this.gc = gc;
+		this.scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		
+		this.fonts = new HashMap<String, Font>();
+		this.metrics = new HashMap<Font, FontMetrics>();
+		this.texts = new HashMap<Font, LinkedHashMap<String, Text>>();
+		
+	}
+	
+	public Font font(String name, int style, int size) {
+		/*
+		 * Returns the font, made the first time it is asked for.
+		 * In:
+		 *  name, style, size: look up java.awt.Font
+		 */
+		
+		String key = name + "/" + style + "/" + size;
+		Font f = this.fonts.get(key);
+		if (f == null) {
+			f = new Font(name, style, size);
+			this.fonts.put(key, f);
+		}
+		
+		return f;
+		
+	}
+	
+	public FontMetrics metrics(Font f) {
+		/*
+		 * Returns the metrics of a font, read the first time they are asked for.
+		 * In:
+		 *  f: font
+		 */
+		
+		FontMetrics fm = this.metrics.get(f);
+		if (fm == null) {
+			fm = this.scratch.getFontMetrics(f);
+			this.metrics.put(f, fm);
+		}
+		
+		return fm;
+		
+	}
+	
+	public void draw(Graphics2D g, String str, int x, int y) {
+		/*
+		 * Draws str like g.drawString would, with the font and the color of g.
+		 * In:
+		 *  g: graphics to draw on
+		 *  str: text
+		 *  x, y: position of the start of the baseline
+		 */
+		
+		Font f = g.getFont();
+		Color c = g.getColor();
+		
+		LinkedHashMap<String, Text> cache = this.texts.get(f);
+		if (cache == null) {
+			// most recently used last, the oldest one is forgotten when there are too many
+			cache = new LinkedHashMap<String, Text>(16, 0.75f, true) {
+				private static final long serialVersionUID = 4L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Text> eldest) {
+					return this.size() > Texts.maxTexts;
+				}
+			};
+			this.texts.put(f, cache);
+		}
+		
+		Text t = cache.get(str);
+		if (t == null || t.rgb != c.getRGB()) {
+			t = this.render(str, f, c);
+			cache.put(str, t);
+		}
+		
+		g.drawImage(t.image, x - t.dx, y - t.dy, null);
+		
+	}
+	
+	private Text render(String str, Font f, Color c) {
+		/*
+		 * Draws str into a new transparent image, with a margin around it for the glyphs that go past their
+		 * width.
+		 * In:
+		 *  str: text
+		 *  f: font
+		 *  c: color
+		 */
+		
+		FontMetrics fm = this.metrics(f);
+		int pad = f.getSize() / 2 + 1;
+		int w = Math.max(1, fm.stringWidth(str) + 2 * pad), h = fm.getMaxAscent() + fm.getMaxDescent() + 2 * pad;
+		
+		BufferedImage img = this.gc != null? this.gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+				: new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setFont(f);
+		g.setColor(c);
+		g.drawString(str, pad, pad + fm.getMaxAscent());
+		g.dispose();
+		
+		return new Text(img, pad, pad + fm.getMaxAscent(), c.getRGB());
+		
+	}
+
+}
+
+class Text {
+	/*
+	 * Text drawn into an image (look up Texts).
+	 */
+	
+	final Image image;
+	final int dx, dy, // position of the start of the baseline in the image
+			  rgb;    // color of the text
+	
+	Text(Image image, int dx, int dy, int rgb) {
+		
+		this.image = image;
+		this.dx = dx;
+		this.dy = dy;
+		this.rgb = rgb;
+		
+	}
+
+}